@@ -3,11 +3,11 @@ package win.smartown.android.app.tablelayout;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import win.smartown.android.library.tableLayout.ColumnarTableAdapter;
 import win.smartown.android.library.tableLayout.TableAdapter;
 import win.smartown.android.library.tableLayout.TableLayout;
 
@@ -37,34 +37,23 @@ public class MainActivity extends AppCompatActivity {
         contentList.add(new Content("赵铁柱", newRandomNumber(), newRandomNumber(), newRandomNumber(), newRandomNumber(), newRandomNumber(), newRandomNumber()));
     }
 
-    //将第一行作为标题
+    //将第一行作为标题，姓名按字典编码保存，分数保存为int，绘制时才格式化为文字
     private void firstRowAsTitle() {
-        //fields是表格中要显示的数据对应到Content类中的成员变量名，其定义顺序要与表格中显示的相同
-        final String[] fields = {"姓名", "语文", "数学", "英语", "物理", "化学", "生物"};
-        tableLayout.setAdapter(new TableAdapter() {
-            @Override
-            public int getColumnCount() {
-                return fields.length;
-            }
-
-            @Override
-            public String[] getColumnContent(int position) {
-                int rowCount = contentList.size();
-                String contents[] = new String[rowCount];
-                try {
-                    Field field = Content.class.getDeclaredField(fields[position]);
-                    field.setAccessible(true);
-                    for (int i = 0; i < rowCount; i++) {
-                        contents[i] = (String) field.get(contentList.get(i));
-                    }
-                } catch (NoSuchFieldException e) {
-                    e.printStackTrace();
-                } catch (IllegalAccessException e) {
-                    e.printStackTrace();
-                }
-                return contents;
+        String[] titles = contentList.get(0).toArray();
+        int dataRowCount = contentList.size() - 1;
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(dataRowCount);
+        ColumnarTableAdapter.StringColumn names = adapter.addStringColumn(titles[0]);
+        for (int i = 0; i < dataRowCount; i++) {
+            names.set(i, contentList.get(i + 1).get(0));
+        }
+        Random random = new Random();
+        for (int column = 1; column < titles.length; column++) {
+            ColumnarTableAdapter.IntColumn scores = adapter.addIntColumn(titles[column]);
+            for (int i = 0; i < dataRowCount; i++) {
+                scores.set(i, random.nextInt(50) + 50);
             }
-        });
+        }
+        tableLayout.setAdapter(adapter);
     }
 
     //将第一列作为标题
@@ -88,6 +77,8 @@ public class MainActivity extends AppCompatActivity {
 
     public static class Content {
 
+        public static final int FIELD_COUNT = 7;
+
         private String 姓名;
         private String 语文;
         private String 数学;
@@ -110,6 +101,26 @@ public class MainActivity extends AppCompatActivity {
             return new String[]{姓名, 语文, 数学, 英语, 物理, 化学, 生物};
         }
 
+        public String get(int index) {
+            switch (index) {
+                case 0:
+                    return 姓名;
+                case 1:
+                    return 语文;
+                case 2:
+                    return 数学;
+                case 3:
+                    return 英语;
+                case 4:
+                    return 物理;
+                case 5:
+                    return 化学;
+                case 6:
+                    return 生物;
+            }
+            return null;
+        }
+
     }
 
 }
@@ -0,0 +1,102 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import win.smartown.android.library.tableLayout.TableAdapter;
+import win.smartown.android.library.tableLayout.TableAdapterBridge;
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 绘制一屏单元格时从adapter读取数据的开销，以及旧的TableAdapter通过TableAdapterBridge接入的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark {
+
+    //一屏大约显示的行列数
+    private static final int VISIBLE_ROWS = 30;
+    private static final int VISIBLE_COLUMNS = 10;
+
+    @Param({"10x10", "100x100", "1000x100", "10000x100"})
+    public String size;
+
+    private SyntheticTableAdapter cellAdapter;
+    private TableAdapter legacyAdapter;
+    private TableAdapterBridge bridge;
+    private final StringBuilder text = new StringBuilder();
+    private int firstRow;
+
+    @Setup
+    public void setUp() {
+        TableSize tableSize = TableSize.parse(size);
+        cellAdapter = new SyntheticTableAdapter(tableSize.rows, tableSize.columns);
+        final String[][] columns = new String[tableSize.columns][];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = cellAdapter.getColumnContent(i);
+        }
+        legacyAdapter = new TableAdapter() {
+            @Override
+            public int getColumnCount() {
+                return columns.length;
+            }
+
+            @Override
+            public String[] getColumnContent(int position) {
+                return columns[position];
+            }
+        };
+        bridge = new TableAdapterBridge(legacyAdapter);
+    }
+
+    @Benchmark
+    public int bindViewport() {
+        return bind(cellAdapter);
+    }
+
+    @Benchmark
+    public int bindViewportBridge() {
+        return bind(bridge);
+    }
+
+    //设置旧的TableAdapter后绘制第一屏
+    @Benchmark
+    public int bindFirstFrameBridge() {
+        TableAdapterBridge newBridge = new TableAdapterBridge(legacyAdapter);
+        return newBridge.getRowCount() + bind(newBridge);
+    }
+
+    private int bind(TableCellAdapter adapter) {
+        int rowCount = adapter.getRowCount();
+        int columnCount = adapter.getColumnCount();
+        //每次滚动一行
+        firstRow = firstRow + 1 < rowCount ? firstRow + 1 : 0;
+        int lastRow = Math.min(rowCount, firstRow + VISIBLE_ROWS);
+        int lastColumn = Math.min(columnCount, VISIBLE_COLUMNS);
+        int length = 0;
+        for (int row = firstRow; row < lastRow; row++) {
+            for (int column = 0; column < lastColumn; column++) {
+                text.setLength(0);
+                adapter.getCell(row, column, text);
+                length += text.length();
+            }
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,102 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
+
+/**
+ * 数据局部变化后更新列宽和偏移量的开销
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeBenchmark {
+
+    private static final int CHANGE_COUNT = 1024;
+    private static final int INSERT_COUNT = 10;
+
+    @Param({"10x10", "100x100", "1000x100", "10000x100"})
+    public String size;
+
+    private SyntheticTableAdapter adapter;
+    private TableLayoutEngine engine;
+    private int[] rows;
+    private int[] columns;
+    private String[] values;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        TableSize tableSize = TableSize.parse(size);
+        adapter = new SyntheticTableAdapter(tableSize.rows, tableSize.columns);
+        engine = new TableLayoutEngine(48, 16);
+        engine.setAdapter(adapter, new FakeTextMeasurer(7.5f));
+        engine.measure();
+        Random random = new Random(42);
+        rows = new int[CHANGE_COUNT];
+        columns = new int[CHANGE_COUNT];
+        values = new String[CHANGE_COUNT];
+        for (int i = 0; i < CHANGE_COUNT; i++) {
+            rows[i] = 1 + random.nextInt(tableSize.rows - 1);
+            columns[i] = random.nextInt(tableSize.columns);
+            values[i] = String.valueOf(random.nextInt(100000));
+        }
+    }
+
+    @Benchmark
+    public boolean cellChanged() {
+        int i = index++ & (CHANGE_COUNT - 1);
+        adapter.setCell(rows[i], columns[i], values[i]);
+        return engine.notifyCellChanged(rows[i], columns[i]);
+    }
+
+    @Benchmark
+    public boolean columnChanged() {
+        int i = index++ & (CHANGE_COUNT - 1);
+        return engine.notifyColumnChanged(columns[i]);
+    }
+
+    //用户拖动调整列宽，不重新测量
+    @Benchmark
+    public int columnResized() {
+        int i = index++ & (CHANGE_COUNT - 1);
+        engine.setColumnWidth(columns[i], 100 + (i & 63));
+        return engine.getWidth();
+    }
+
+    @Benchmark
+    public int rowResized() {
+        int i = index++ & (CHANGE_COUNT - 1);
+        engine.setRowHeight(rows[i], 48 + (i & 63));
+        return engine.getHeight();
+    }
+
+    //插入若干行后再删除，保持表格大小不变
+    @Benchmark
+    public int rowRangeInsertedAndRemoved() {
+        int i = index++ & (CHANGE_COUNT - 1);
+        int rowCount = adapter.getRowCount();
+        adapter.setRowCount(rowCount + INSERT_COUNT);
+        engine.notifyRowRangeInserted(rows[i], INSERT_COUNT);
+        adapter.setRowCount(rowCount);
+        engine.notifyRowRangeRemoved(rows[i], INSERT_COUNT);
+        return engine.getWidth();
+    }
+
+}
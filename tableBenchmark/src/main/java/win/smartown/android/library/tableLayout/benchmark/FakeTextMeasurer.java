@@ -0,0 +1,21 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import win.smartown.android.library.tableLayout.engine.TextMeasurer;
+
+/**
+ * 每个字符固定宽度，模拟等宽字体
+ */
+public class FakeTextMeasurer implements TextMeasurer {
+
+    private final float charWidth;
+
+    public FakeTextMeasurer(float charWidth) {
+        this.charWidth = charWidth;
+    }
+
+    @Override
+    public float measureText(CharSequence text, int start, int end) {
+        return (end - start) * charWidth;
+    }
+
+}
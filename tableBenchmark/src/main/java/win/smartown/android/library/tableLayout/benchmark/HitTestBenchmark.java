@@ -0,0 +1,79 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
+
+/**
+ * 根据坐标查找行列(TableLayout.onClick()的路径)以及查询偏移量
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HitTestBenchmark {
+
+    private static final int POINT_COUNT = 1024;
+
+    @Param({"10x10", "100x100", "1000x100", "10000x100"})
+    public String size;
+
+    private TableLayoutEngine engine;
+    private float[] xs;
+    private float[] ys;
+    private final int[] cell = new int[2];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        TableSize tableSize = TableSize.parse(size);
+        engine = new TableLayoutEngine(48, 16);
+        engine.setAdapter(new SyntheticTableAdapter(tableSize.rows, tableSize.columns), new FakeTextMeasurer(7.5f));
+        engine.measure();
+        Random random = new Random(42);
+        xs = new float[POINT_COUNT];
+        ys = new float[POINT_COUNT];
+        for (int i = 0; i < POINT_COUNT; i++) {
+            xs[i] = random.nextFloat() * engine.getWidth();
+            ys[i] = random.nextFloat() * engine.getHeight();
+        }
+    }
+
+    @Benchmark
+    public int cellAtRandom() {
+        int i = index++ & (POINT_COUNT - 1);
+        engine.cellAt(xs[i], ys[i], cell);
+        return cell[0] * 31 + cell[1];
+    }
+
+    //点击最右下角的单元格
+    @Benchmark
+    public int cellAtFarCorner() {
+        engine.cellAt(engine.getWidth() - 1, engine.getHeight() - 1, cell);
+        return cell[0] * 31 + cell[1];
+    }
+
+    @Benchmark
+    public int offsets() {
+        int i = index++ & (POINT_COUNT - 1);
+        int column = (int) (xs[i] / engine.getWidth() * engine.getColumnCount());
+        int row = (int) (ys[i] / engine.getHeight() * engine.getRowCount());
+        return engine.getColumnLeft(column) + engine.getColumnRight(column) + engine.getRowTop(row);
+    }
+
+}
@@ -0,0 +1,57 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
+import win.smartown.android.library.tableLayout.engine.TextMeasurer;
+
+/**
+ * 设置adapter并计算全部列宽
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeasureBenchmark {
+
+    @Param({"10x10", "100x100", "1000x100", "10000x100"})
+    public String size;
+
+    @Param({"0", "2"})
+    public int widthMode;
+
+    private SyntheticTableAdapter adapter;
+    private TextMeasurer textMeasurer;
+    private TableLayoutEngine engine;
+
+    @Setup
+    public void setUp() {
+        TableSize tableSize = TableSize.parse(size);
+        adapter = new SyntheticTableAdapter(tableSize.rows, tableSize.columns);
+        textMeasurer = new FakeTextMeasurer(7.5f);
+        engine = new TableLayoutEngine(48, 16);
+        engine.setWidthMode(widthMode);
+    }
+
+    @Benchmark
+    public int measure() {
+        engine.setAdapter(adapter, textMeasurer);
+        engine.measure();
+        return engine.getWidth();
+    }
+
+}
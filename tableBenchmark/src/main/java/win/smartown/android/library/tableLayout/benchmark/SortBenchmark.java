@@ -0,0 +1,82 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+import win.smartown.android.library.tableLayout.engine.RowComparators;
+import win.smartown.android.library.tableLayout.engine.RowFilters;
+import win.smartown.android.library.tableLayout.engine.RowSorter;
+
+/**
+ * 计算排序、筛选后的行顺序
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark {
+
+    @Param({"1000x10", "100000x10"})
+    public String size;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    //columnar为按列保存数值的ColumnarTableAdapter，排序、按范围筛选时不格式化文字
+    @Param({"synthetic", "columnar"})
+    public String source;
+
+    private TableCellAdapter adapter;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        TableSize tableSize = TableSize.parse(size);
+        SyntheticTableAdapter synthetic = new SyntheticTableAdapter(tableSize.rows, tableSize.columns);
+        adapter = "columnar".equals(source) ? synthetic.toColumnar() : synthetic;
+        executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int sortNumber() {
+        return RowSorter.sortRows(adapter, RowComparators.number(1), null, executor, parallelism).length;
+    }
+
+    @Benchmark
+    public int sortText() {
+        return RowSorter.sortRows(adapter, RowComparators.text(1), null, executor, parallelism).length;
+    }
+
+    @Benchmark
+    public int filter() {
+        return RowSorter.sortRows(adapter, null, RowFilters.contains(1, "77"), executor, parallelism).length;
+    }
+
+    @Benchmark
+    public int filterNumberRange() {
+        return RowSorter.sortRows(adapter, null, RowFilters.numberRange(1, 1000000, 5000000), executor, parallelism).length;
+    }
+
+}
@@ -0,0 +1,89 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+import java.util.HashMap;
+
+import win.smartown.android.library.tableLayout.ColumnarTableAdapter;
+import win.smartown.android.library.tableLayout.MutableTableCellAdapter;
+
+/**
+ * 内容由行列号计算得到的表格，不保存每个单元格，被修改过的单元格保存在overrides中
+ */
+public class SyntheticTableAdapter implements MutableTableCellAdapter {
+
+    private int rowCount;
+    private final int columnCount;
+    private final HashMap<Long, String> overrides = new HashMap<>();
+
+    public SyntheticTableAdapter(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+    }
+
+    public void setRowCount(int rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        if (!overrides.isEmpty()) {
+            String value = overrides.get(key(row, column));
+            if (value != null) {
+                out.append(value);
+                return;
+            }
+        }
+        if (row == 0) {
+            out.append("column").append(column);
+        } else {
+            //长度在1到7位之间变化
+            out.append((row * 7919L + column * 104729L) % 9999991);
+        }
+    }
+
+    @Override
+    public void setCell(int row, int column, CharSequence value) {
+        overrides.put(key(row, column), value.toString());
+    }
+
+    //将getCell()的结果转为按列保存的String[]，用于测试TableAdapterBridge
+    public String[] getColumnContent(int column) {
+        String[] content = new String[rowCount];
+        StringBuilder text = new StringBuilder();
+        for (int row = 0; row < rowCount; row++) {
+            text.setLength(0);
+            getCell(row, column, text);
+            content[row] = text.toString();
+        }
+        return content;
+    }
+
+    //内容相同、按列保存为long[]的表格，用于对比
+    public ColumnarTableAdapter toColumnar() {
+        ColumnarTableAdapter columnar = new ColumnarTableAdapter(Math.max(rowCount - 1, 0));
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < columnCount; column++) {
+            text.setLength(0);
+            getCell(0, column, text);
+            ColumnarTableAdapter.LongColumn values = columnar.addLongColumn(text.toString());
+            for (int row = 1; row < rowCount; row++) {
+                values.set(row - 1, (row * 7919L + column * 104729L) % 9999991);
+            }
+        }
+        return columnar;
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+}
@@ -0,0 +1,21 @@
+package win.smartown.android.library.tableLayout.benchmark;
+
+/**
+ * 解析基准测试参数中的表格大小，格式为"行数x列数"
+ */
+final class TableSize {
+
+    final int rows;
+    final int columns;
+
+    private TableSize(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    static TableSize parse(String size) {
+        int index = size.indexOf('x');
+        return new TableSize(Integer.parseInt(size.substring(0, index)), Integer.parseInt(size.substring(index + 1)));
+    }
+
+}
@@ -0,0 +1,457 @@
+package win.smartown.android.library.tableLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 按列保存数据的adapter，数字保存在int[]、long[]、double[]中，文字按字典编码保存为int[]
+ * 只有绘制、测量的单元格才格式化为文字，直接追加到传入的StringBuilder中
+ * 第0行是标题，为各列的title；列中的数据下标从0开始，第index个数据显示在第index + 1行
+ */
+public class ColumnarTableAdapter implements MutableTableCellAdapter {
+
+    private final ArrayList<Column> columns = new ArrayList<>();
+    //数据行数，不包括标题
+    private int dataRowCount;
+    private int capacity;
+
+    public ColumnarTableAdapter() {
+    }
+
+    public ColumnarTableAdapter(int dataRowCount) {
+        setDataRowCount(dataRowCount);
+    }
+
+    public IntColumn addIntColumn(String title) {
+        return addColumn(new IntColumn(title));
+    }
+
+    public LongColumn addLongColumn(String title) {
+        return addColumn(new LongColumn(title));
+    }
+
+    //decimals为保留的小数位数，小于0时按Double.toString()的格式显示
+    public DoubleColumn addDoubleColumn(String title, int decimals) {
+        return addColumn(new DoubleColumn(title, decimals));
+    }
+
+    public StringColumn addStringColumn(String title) {
+        return addColumn(new StringColumn(title));
+    }
+
+    private <T extends Column> T addColumn(T column) {
+        column.ensureCapacity(capacity);
+        columns.add(column);
+        return column;
+    }
+
+    public Column getColumn(int column) {
+        return columns.get(column);
+    }
+
+    public int getDataRowCount() {
+        return dataRowCount;
+    }
+
+    //新增的行数值为0，文字为空
+    public void setDataRowCount(int dataRowCount) {
+        if (dataRowCount > capacity) {
+            int newCapacity = Math.max(dataRowCount, capacity + (capacity >> 1));
+            for (Column column : columns) {
+                column.ensureCapacity(newCapacity);
+            }
+            capacity = newCapacity;
+        }
+        for (Column column : columns) {
+            column.clear(dataRowCount, this.dataRowCount);
+        }
+        this.dataRowCount = dataRowCount;
+    }
+
+    //在最后添加一行，返回该行数据的下标
+    public int addDataRow() {
+        setDataRowCount(dataRowCount + 1);
+        return dataRowCount - 1;
+    }
+
+    //第column列是否为数字
+    public boolean isNumeric(int column) {
+        return columns.get(column).isNumeric();
+    }
+
+    //第row行第column列的数值，标题行和文字列返回NaN
+    public double getNumber(int row, int column) {
+        return row == 0 ? Double.NaN : columns.get(column).getNumber(row - 1);
+    }
+
+    @Override
+    public int getRowCount() {
+        return dataRowCount + 1;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        Column data = columns.get(column);
+        if (row == 0) {
+            out.append(data.getTitle());
+        } else {
+            data.format(row - 1, out);
+        }
+    }
+
+    //数字列的value不是数字时抛出NumberFormatException
+    @Override
+    public void setCell(int row, int column, CharSequence value) {
+        Column data = columns.get(column);
+        if (row == 0) {
+            data.setTitle(value.toString());
+        } else {
+            data.parse(row - 1, value);
+        }
+    }
+
+    public abstract static class Column {
+
+        private String title;
+
+        Column(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public boolean isNumeric() {
+            return false;
+        }
+
+        //第index个数据的数值，文字列返回NaN
+        public double getNumber(int index) {
+            return Double.NaN;
+        }
+
+        //比较第index1、index2个数据
+        public abstract int compare(int index1, int index2);
+
+        //将第index个数据格式化后追加到out中
+        public abstract void format(int index, StringBuilder out);
+
+        public abstract void parse(int index, CharSequence text);
+
+        abstract void ensureCapacity(int capacity);
+
+        //将[from, to)范围内的数据恢复为默认值，删除行后重新添加时不会出现旧数据
+        abstract void clear(int from, int to);
+
+    }
+
+    public static class IntColumn extends Column {
+
+        private int[] values = new int[0];
+
+        IntColumn(String title) {
+            super(title);
+        }
+
+        public int get(int index) {
+            return values[index];
+        }
+
+        public void set(int index, int value) {
+            values[index] = value;
+        }
+
+        @Override
+        public boolean isNumeric() {
+            return true;
+        }
+
+        @Override
+        public double getNumber(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            int value1 = values[index1];
+            int value2 = values[index2];
+            return value1 < value2 ? -1 : value1 == value2 ? 0 : 1;
+        }
+
+        @Override
+        public void format(int index, StringBuilder out) {
+            out.append(values[index]);
+        }
+
+        @Override
+        public void parse(int index, CharSequence text) {
+            values[index] = Integer.parseInt(text.toString().trim());
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void clear(int from, int to) {
+            if (from < to) {
+                Arrays.fill(values, from, to, 0);
+            }
+        }
+
+    }
+
+    public static class LongColumn extends Column {
+
+        private long[] values = new long[0];
+
+        LongColumn(String title) {
+            super(title);
+        }
+
+        public long get(int index) {
+            return values[index];
+        }
+
+        public void set(int index, long value) {
+            values[index] = value;
+        }
+
+        @Override
+        public boolean isNumeric() {
+            return true;
+        }
+
+        @Override
+        public double getNumber(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            long value1 = values[index1];
+            long value2 = values[index2];
+            return value1 < value2 ? -1 : value1 == value2 ? 0 : 1;
+        }
+
+        @Override
+        public void format(int index, StringBuilder out) {
+            out.append(values[index]);
+        }
+
+        @Override
+        public void parse(int index, CharSequence text) {
+            values[index] = Long.parseLong(text.toString().trim());
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void clear(int from, int to) {
+            if (from < to) {
+                Arrays.fill(values, from, to, 0);
+            }
+        }
+
+    }
+
+    //NaN显示为空，排序时排在最后
+    public static class DoubleColumn extends Column {
+
+        //超过该值时不能放大为long格式化
+        private static final double MAX_SCALED = 1e17;
+
+        private final int decimals;
+        private final long scale;
+        private double[] values = new double[0];
+
+        DoubleColumn(String title, int decimals) {
+            super(title);
+            this.decimals = decimals;
+            long scale = 1;
+            for (int i = 0; i < decimals; i++) {
+                scale *= 10;
+            }
+            this.scale = scale;
+        }
+
+        public int getDecimals() {
+            return decimals;
+        }
+
+        public double get(int index) {
+            return values[index];
+        }
+
+        public void set(int index, double value) {
+            values[index] = value;
+        }
+
+        @Override
+        public boolean isNumeric() {
+            return true;
+        }
+
+        @Override
+        public double getNumber(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            double value1 = values[index1];
+            double value2 = values[index2];
+            boolean nan1 = Double.isNaN(value1);
+            boolean nan2 = Double.isNaN(value2);
+            if (nan1 || nan2) {
+                return nan1 == nan2 ? 0 : nan1 ? 1 : -1;
+            }
+            return Double.compare(value1, value2);
+        }
+
+        //放大为long后分别追加整数、小数部分，不创建String
+        @Override
+        public void format(int index, StringBuilder out) {
+            double value = values[index];
+            if (Double.isNaN(value)) {
+                return;
+            }
+            double scaled = Math.abs(value) * scale;
+            if (decimals < 0 || scaled >= MAX_SCALED || Double.isInfinite(value)) {
+                out.append(value);
+                return;
+            }
+            long rounded = Math.round(scaled);
+            if (value < 0 && rounded != 0) {
+                out.append('-');
+            }
+            out.append(rounded / scale);
+            if (decimals == 0) {
+                return;
+            }
+            out.append('.');
+            long fraction = rounded % scale;
+            for (long digit = scale / 10; digit > 1 && fraction < digit; digit /= 10) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+
+        //空白为NaN
+        @Override
+        public void parse(int index, CharSequence text) {
+            String value = text.toString().trim();
+            values[index] = value.isEmpty() ? Double.NaN : Double.parseDouble(value);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void clear(int from, int to) {
+            if (from < to) {
+                Arrays.fill(values, from, to, 0);
+            }
+        }
+
+    }
+
+    //相同的文字只保存一次，每行只保存字典中的序号，-1表示null
+    public static class StringColumn extends Column {
+
+        private int[] codes = new int[0];
+        private final ArrayList<String> dictionary = new ArrayList<>();
+        private final HashMap<String, Integer> codeMap = new HashMap<>();
+
+        StringColumn(String title) {
+            super(title);
+        }
+
+        public String get(int index) {
+            int code = codes[index];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        public void set(int index, String value) {
+            codes[index] = encode(value);
+        }
+
+        //字典中不同文字的个数，不再使用的文字不会被移除
+        public int getDictionarySize() {
+            return dictionary.size();
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codeMap.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codeMap.put(value, code);
+            }
+            return code;
+        }
+
+        @Override
+        public int compare(int index1, int index2) {
+            int code1 = codes[index1];
+            int code2 = codes[index2];
+            if (code1 == code2) {
+                return 0;
+            }
+            String value1 = code1 < 0 ? "" : dictionary.get(code1);
+            String value2 = code2 < 0 ? "" : dictionary.get(code2);
+            return value1.compareTo(value2);
+        }
+
+        @Override
+        public void format(int index, StringBuilder out) {
+            int code = codes[index];
+            if (code >= 0) {
+                out.append(dictionary.get(code));
+            }
+        }
+
+        @Override
+        public void parse(int index, CharSequence text) {
+            codes[index] = encode(text.toString());
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            int oldCapacity = codes.length;
+            codes = Arrays.copyOf(codes, capacity);
+            if (capacity > oldCapacity) {
+                Arrays.fill(codes, oldCapacity, capacity, -1);
+            }
+        }
+
+        @Override
+        void clear(int from, int to) {
+            if (from < to) {
+                Arrays.fill(codes, from, to, -1);
+            }
+        }
+
+    }
+
+}
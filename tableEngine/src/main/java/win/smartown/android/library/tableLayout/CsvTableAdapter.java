@@ -0,0 +1,548 @@
+package win.smartown.android.library.tableLayout;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 以内存映射方式读取UTF-8编码的CSV/TSV文件，打开时只读取第一行(标题)确定列数
+ * startIndexing()在后台线程查找行的起始位置，每INDEX_STRIDE行只记录一个位置，已找到的行分批显示
+ * 只有读取的行才被解码，最近解码的行保存在缓存中，占用内存与文件大小无关
+ * getCell()可以在多个线程中同时调用：缓存按行号分为多段，各自加锁，解码在锁外进行，并行排序时不会互相等待
+ * 文件不能超过2GB，建议使用sampled模式，避免每批新显示的行都在UI线程中全部测量
+ */
+public class CsvTableAdapter implements TableCellAdapter, Closeable {
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    //每隔多少行记录一次起始位置，其余行从记录的位置向后查找
+    static final int INDEX_STRIDE = 16;
+    //缓存分段数，相邻的行在不同的段中
+    private static final int CACHE_STRIPES = 16;
+    //后台线程每找到多少行检查一次是否需要通知
+    private static final int PUBLISH_CHECK_ROWS = 1024;
+    private static final long PUBLISH_INTERVAL_MILLIS = 50;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final byte separator;
+    //TSV不处理引号
+    private final boolean quoted;
+    private final int dataStart;
+    private final int columnCount;
+
+    //blockStarts[i]为第i * INDEX_STRIDE行的起始位置，由后台线程写入，先写入数组再更新indexedRowCount
+    private volatile int[] blockStarts = new int[64];
+    //已找到结尾的行数
+    private volatile int indexedRowCount;
+    //已通知显示的行数
+    private volatile int rowCount;
+    private volatile boolean indexing;
+    private volatile boolean closed;
+    private final AtomicBoolean publishPending = new AtomicBoolean();
+
+    private final CacheStripe[] cacheStripes = new CacheStripe[CACHE_STRIPES];
+    private volatile int cacheSize = DEFAULT_CACHE_SIZE;
+    //每个线程上一次解码的行及其结尾，顺序读取时不需要从记录的位置查找
+    private final ThreadLocal<Decoder> decoders = new ThreadLocal<Decoder>() {
+        @Override
+        protected Decoder initialValue() {
+            return new Decoder();
+        }
+    };
+
+    //扩展名为.tsv时按制表符分隔，否则按逗号分隔
+    public CsvTableAdapter(File file) throws IOException {
+        this(file, file.getName().toLowerCase().endsWith(".tsv") ? '\t' : ',');
+    }
+
+    public CsvTableAdapter(File file, char separator) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("file too large: " + file);
+        }
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            buffer = this.file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+        size = (int) length;
+        this.separator = (byte) separator;
+        quoted = separator != '\t';
+        dataStart = size >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF ? 3 : 0;
+        blockStarts[0] = dataStart;
+        for (int i = 0; i < CACHE_STRIPES; i++) {
+            cacheStripes[i] = new CacheStripe(DEFAULT_CACHE_SIZE / CACHE_STRIPES);
+        }
+        columnCount = dataStart < size ? decodeRow(dataStart, findRowEnd(dataStart), new DecodedRow()).fieldCount : 0;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    //缓存的总行数，平均分到各段
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = Math.max(cacheSize, 1);
+        int stripeSize = Math.max(1, this.cacheSize / CACHE_STRIPES);
+        for (CacheStripe stripe : cacheStripes) {
+            synchronized (stripe) {
+                stripe.resize(stripeSize);
+            }
+        }
+    }
+
+    private void clearCache() {
+        for (CacheStripe stripe : cacheStripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public boolean isIndexing() {
+        return indexing;
+    }
+
+    //后台线程已找到的行数，可能还没有通知显示
+    public int getIndexedRowCount() {
+        return indexedRowCount;
+    }
+
+    /**
+     * 在executor中查找行的起始位置，只能调用一次
+     *
+     * @param callbackExecutor 通知listener的线程，通常为UI线程，listener中调用TableLayout.notifyRowRangeInserted()
+     */
+    public void startIndexing(Executor executor, final Executor callbackExecutor, final Listener listener) {
+        if (indexing || indexedRowCount > 0) {
+            throw new IllegalStateException("already indexed");
+        }
+        indexing = true;
+        final Runnable publish = new Runnable() {
+            @Override
+            public void run() {
+                publishPending.set(false);
+                publishRows(listener);
+            }
+        };
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long lastPublish = System.currentTimeMillis();
+                int position = dataStart;
+                int rows = 0;
+                while (position < size && !closed) {
+                    position = findRowEnd(position);
+                    addRow(rows++, position);
+                    if (rows % PUBLISH_CHECK_ROWS == 0) {
+                        long now = System.currentTimeMillis();
+                        if (now - lastPublish >= PUBLISH_INTERVAL_MILLIS && publishPending.compareAndSet(false, true)) {
+                            lastPublish = now;
+                            callbackExecutor.execute(publish);
+                        }
+                    }
+                }
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        indexing = false;
+                        publishRows(listener);
+                        if (listener != null && !closed) {
+                            listener.onIndexFinished(CsvTableAdapter.this);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    //在当前线程中查找全部行，返回行数
+    public int indexAll() {
+        startIndexing(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, null);
+        return rowCount;
+    }
+
+    //第row行结束于end，只在后台线程调用
+    private void addRow(int row, int end) {
+        int next = row + 1;
+        if (next % INDEX_STRIDE == 0) {
+            int block = next / INDEX_STRIDE;
+            int[] starts = blockStarts;
+            if (block >= starts.length) {
+                starts = Arrays.copyOf(starts, starts.length + (starts.length >> 1));
+                starts[block] = end;
+                blockStarts = starts;
+            } else {
+                starts[block] = end;
+            }
+        }
+        indexedRowCount = next;
+    }
+
+    private void publishRows(Listener listener) {
+        int oldCount = rowCount;
+        int count = indexedRowCount;
+        if (count > oldCount && !closed) {
+            rowCount = count;
+            if (listener != null) {
+                listener.onRowsIndexed(this, oldCount, count - oldCount);
+            }
+        }
+    }
+
+    //返回从start开始的行的结尾(下一行的起始位置)，引号中的换行不作为行的结尾
+    //与decodeRow()相同，只有字段开头的引号才开始引用，字段中间的引号(例如12" pipe)是普通字符
+    private int findRowEnd(int start) {
+        boolean inQuotes = false;
+        boolean fieldStart = true;
+        for (int i = start; i < size; i++) {
+            byte b = buffer.get(i);
+            if (inQuotes) {
+                if (b == '"') {
+                    if (i + 1 < size && buffer.get(i + 1) == '"') {
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+            } else if (b == '\n') {
+                return i + 1;
+            } else if (b == separator) {
+                fieldStart = true;
+            } else {
+                inQuotes = b == '"' && quoted && fieldStart;
+                fieldStart = false;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    //字段数少于列数的行，缺少的列为空
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        CacheStripe stripe = cacheStripes[row % CACHE_STRIPES];
+        //缓存中的行被淘汰后会被重用，需要在锁中复制
+        synchronized (stripe) {
+            DecodedRow decoded = stripe.get(row);
+            if (decoded != null) {
+                appendField(decoded, column, out);
+                return;
+            }
+        }
+        //未缓存的行在锁外解码到当前线程的DecodedRow中，放入缓存后换成被淘汰的行
+        Decoder decoder = decoders.get();
+        DecodedRow decoded = decodeRow(row, decoder);
+        appendField(decoded, column, out);
+        synchronized (stripe) {
+            if (stripe.contains(row)) {
+                //其他线程同时解码了该行
+                decoder.spare = decoded;
+            } else {
+                decoder.spare = stripe.put(row, decoded);
+            }
+        }
+    }
+
+    private DecodedRow decodeRow(int row, Decoder decoder) {
+        int start;
+        if (row == decoder.lastRow + 1 && decoder.lastRow >= 0) {
+            start = decoder.lastRowEnd;
+        } else {
+            start = blockStarts[row / INDEX_STRIDE];
+            for (int i = row % INDEX_STRIDE; i > 0; i--) {
+                start = findRowEnd(start);
+            }
+        }
+        int end = findRowEnd(start);
+        decoder.lastRow = row;
+        decoder.lastRowEnd = end;
+        DecodedRow decoded = decoder.spare != null ? decoder.spare : new DecodedRow();
+        decoder.spare = null;
+        return decodeRow(start, end, decoded);
+    }
+
+    private static void appendField(DecodedRow decoded, int column, StringBuilder out) {
+        if (column < decoded.fieldCount) {
+            int start = column == 0 ? 0 : decoded.fieldEnds[column - 1];
+            out.append(decoded.chars, start, decoded.fieldEnds[column] - start);
+        }
+    }
+
+    //将[start, end)解码为各个字段，去掉引号及结尾的换行
+    private DecodedRow decodeRow(int start, int end, DecodedRow out) {
+        if (end > start && buffer.get(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        out.ensureCapacity(end - start);
+        char[] chars = out.chars;
+        int length = 0;
+        int fieldCount = 0;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        int i = start;
+        while (i < end) {
+            int b = buffer.get(i) & 0xFF;
+            if (b == '"' && quoted) {
+                if (inQuotes) {
+                    if (i + 1 < end && buffer.get(i + 1) == '"') {
+                        chars[length++] = '"';
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else if (length == fieldStart) {
+                    inQuotes = true;
+                } else {
+                    chars[length++] = '"';
+                }
+                i++;
+            } else if (b == separator && !inQuotes) {
+                out.addField(fieldCount++, length);
+                fieldStart = length;
+                i++;
+            } else if (b < 0x80) {
+                chars[length++] = (char) b;
+                i++;
+            } else {
+                //UTF-8多字节字符，4字节的字符转为两个char
+                int extra = b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : b >= 0xC0 ? 1 : 0;
+                int codePoint = b & (0x3F >> extra);
+                i++;
+                for (int j = 0; j < extra && i < end; j++, i++) {
+                    codePoint = (codePoint << 6) | (buffer.get(i) & 0x3F);
+                }
+                if (codePoint >= 0x10000) {
+                    chars[length++] = Character.highSurrogate(codePoint);
+                    chars[length++] = Character.lowSurrogate(codePoint);
+                } else {
+                    chars[length++] = (char) codePoint;
+                }
+            }
+        }
+        out.addField(fieldCount++, length);
+        out.fieldCount = fieldCount;
+        return out;
+    }
+
+    //停止查找行，之后不能再读取数据；映射的内存在被回收时释放
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        clearCache();
+        file.close();
+    }
+
+    //每个线程独占的解码状态，不引用adapter，线程一直存在时也不会使adapter无法回收
+    private static class Decoder {
+
+        int lastRow = -1;
+        int lastRowEnd;
+        //下一次解码使用的DecodedRow，为null时创建
+        DecodedRow spare;
+
+    }
+
+    //一段缓存，按最近使用的顺序淘汰，在自身的锁中访问
+    //行号开放寻址保存在table中，最近使用的顺序为双向链表，都用int数组保存，查找时不创建对象
+    private static class CacheStripe {
+
+        private int[] rows;
+        private DecodedRow[] values;
+        //prev、next为链表中的前后元素，head为最近使用的元素，tail为最久未使用的元素
+        private int[] prev;
+        private int[] next;
+        private int head = -1;
+        private int tail = -1;
+        private int size;
+        //元素下标 + 1，0为空
+        private int[] table;
+
+        CacheStripe(int maxSize) {
+            resize(maxSize);
+        }
+
+        //清空并改变可以保存的行数
+        void resize(int maxSize) {
+            rows = new int[maxSize];
+            values = new DecodedRow[maxSize];
+            prev = new int[maxSize];
+            next = new int[maxSize];
+            //负载不超过一半
+            table = new int[Integer.highestOneBit(Math.max(maxSize, 4) * 2 - 1) << 1];
+            head = tail = -1;
+            size = 0;
+        }
+
+        void clear() {
+            Arrays.fill(values, null);
+            Arrays.fill(table, 0);
+            head = tail = -1;
+            size = 0;
+        }
+
+        boolean contains(int row) {
+            return indexOf(row) >= 0;
+        }
+
+        //未缓存返回null
+        DecodedRow get(int row) {
+            int index = indexOf(row);
+            if (index < 0) {
+                return null;
+            }
+            if (index != head) {
+                unlink(index);
+                linkFirst(index);
+            }
+            return values[index];
+        }
+
+        //row还未缓存，已满时淘汰最久未使用的行并返回它的DecodedRow
+        DecodedRow put(int row, DecodedRow value) {
+            DecodedRow evicted = null;
+            int index;
+            if (size == rows.length) {
+                index = tail;
+                evicted = values[index];
+                removeFromTable(rows[index]);
+                unlink(index);
+            } else {
+                index = size++;
+            }
+            rows[index] = row;
+            values[index] = value;
+            addToTable(index);
+            linkFirst(index);
+            return evicted;
+        }
+
+        private int indexOf(int row) {
+            int mask = table.length - 1;
+            for (int i = hash(row) & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (rows[table[i] - 1] == row) {
+                    return table[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        private void addToTable(int index) {
+            int mask = table.length - 1;
+            int i = hash(rows[index]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = index + 1;
+        }
+
+        //删除后将之后同一探测序列中的元素重新放入，保证查找不会提前结束
+        private void removeFromTable(int row) {
+            int mask = table.length - 1;
+            int i = hash(row) & mask;
+            while (rows[table[i] - 1] != row) {
+                i = (i + 1) & mask;
+            }
+            table[i] = 0;
+            for (i = (i + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int index = table[i] - 1;
+                table[i] = 0;
+                addToTable(index);
+            }
+        }
+
+        private void unlink(int index) {
+            if (prev[index] >= 0) {
+                next[prev[index]] = next[index];
+            } else {
+                head = next[index];
+            }
+            if (next[index] >= 0) {
+                prev[next[index]] = prev[index];
+            } else {
+                tail = prev[index];
+            }
+        }
+
+        private void linkFirst(int index) {
+            prev[index] = -1;
+            next[index] = head;
+            if (head >= 0) {
+                prev[head] = index;
+            } else {
+                tail = index;
+            }
+            head = index;
+        }
+
+        private static int hash(int row) {
+            int h = row * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+    }
+
+    private static class DecodedRow {
+
+        //字节数不会少于解码后的char数
+        char[] chars = new char[64];
+        //第i个字段为chars中[fieldEnds[i - 1], fieldEnds[i])，第0个字段从0开始
+        int[] fieldEnds = new int[16];
+        int fieldCount;
+
+        void ensureCapacity(int byteCount) {
+            if (chars.length < byteCount) {
+                chars = new char[Math.max(byteCount, chars.length * 2)];
+            }
+        }
+
+        void addField(int field, int end) {
+            if (field == fieldEnds.length) {
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+            }
+            fieldEnds[field] = end;
+        }
+
+    }
+
+    public interface Listener {
+
+        //在callbackExecutor中调用，第positionStart行开始的itemCount行可以显示了
+        void onRowsIndexed(CsvTableAdapter adapter, int positionStart, int itemCount);
+
+        void onIndexFinished(CsvTableAdapter adapter);
+
+    }
+
+}
@@ -0,0 +1,12 @@
+package win.smartown.android.library.tableLayout;
+
+/**
+ * 部分行的数据可能还未读取的TableCellAdapter，例如PagedTableAdapter
+ * 测量列宽时跳过未读取的行，避免按placeholder测量或触发读取
+ */
+public interface LazyTableCellAdapter extends TableCellAdapter {
+
+    //第row行的数据是否已经可以读取，可能在测量列宽的线程中调用，不应加锁或创建对象
+    boolean isRowAvailable(int row);
+
+}
@@ -0,0 +1,11 @@
+package win.smartown.android.library.tableLayout;
+
+/**
+ * 可修改的TableCellAdapter，TableLayout.postCellUpdate()提交的数据最终通过setCell()写入
+ */
+public interface MutableTableCellAdapter extends TableCellAdapter {
+
+    //在UI线程调用，value无法写入时(例如数字列中的非数字)抛出IllegalArgumentException，postCellUpdate()提交的更新会被丢弃
+    void setCell(int row, int column, CharSequence value);
+
+}
@@ -0,0 +1,384 @@
+package win.smartown.android.library.tableLayout;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按页从DataSource异步读取数据，未读取的行显示placeholder，读取完成后通知Listener
+ * 只读取TableLayout在virtual模式下通过onVisibleRowsChanged()告知的可见的行，并沿滚动方向预读后面的页，
+ * getCell()不会触发读取，测量列宽时跳过未读取的行，页读取完成后再测量
+ * 占用内存超过maxBytes时丢弃离可见区域最远的页，建议使用sampled模式，减少每页读取完成后测量的行数
+ * 读取单元格不加锁、不创建对象，已读取的页按页号保存在数组中
+ */
+public class PagedTableAdapter implements LazyTableCellAdapter {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_PREFETCH_PAGES = 2;
+    public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    private final DataSource source;
+    private final int pageSize;
+    private final Executor executor;
+    private final Executor callbackExecutor;
+    private volatile int rowCount;
+    private volatile int columnCount;
+
+    //保护除pages中的元素以外的状态，读取单元格时不需要
+    private final Object lock = new Object();
+    //第i个元素为第i页，未读取时为null，refresh()后整体替换
+    private volatile AtomicReferenceArray<Page> pages;
+    //已提交读取、还未完成的页
+    private final BitSet loadingPages = new BitSet();
+    private long byteCount;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private int prefetchPages = DEFAULT_PREFETCH_PAGES;
+    //refresh()后丢弃之前提交的读取结果
+    private int generation;
+    private String placeholder = "";
+
+    //最近一次可见的行，1为向下滚动，-1为向上滚动
+    private int visibleFirstRow;
+    private int visibleLastRow = -1;
+    private int direction = 1;
+    //排序、筛选后可见及预读的行在数据源中不连续，nearPages为这些行所在的页，按行号连续时sorted为false
+    private final BitSet nearPages = new BitSet();
+    private boolean sorted;
+    private int[] visibleSourceRows;
+
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+
+    public PagedTableAdapter(DataSource source, Executor executor, Executor callbackExecutor) {
+        this(source, DEFAULT_PAGE_SIZE, executor, callbackExecutor);
+    }
+
+    /**
+     * @param executor         调用DataSource.loadRows()的线程
+     * @param callbackExecutor 保存读取结果、通知Listener的线程，通常为UI线程
+     */
+    public PagedTableAdapter(DataSource source, int pageSize, Executor executor, Executor callbackExecutor) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+        rowCount = source.getRowCount();
+        columnCount = source.getColumnCount();
+        pages = new AtomicReferenceArray<>(getPageCount(rowCount));
+    }
+
+    private int getPageCount(int rowCount) {
+        return (rowCount + pageSize - 1) / pageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    //未读取的单元格显示的文字
+    public void setPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
+    //沿滚动方向在可见区域之外预读的页数
+    public void setPrefetchPages(int prefetchPages) {
+        this.prefetchPages = prefetchPages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        synchronized (lock) {
+            this.maxBytes = maxBytes;
+            trimToSize();
+        }
+    }
+
+    //已读取的页估算占用的内存
+    public long getByteCount() {
+        synchronized (lock) {
+            return byteCount;
+        }
+    }
+
+    public boolean isRowLoaded(int row) {
+        return getPage(row) != null;
+    }
+
+    @Override
+    public boolean isRowAvailable(int row) {
+        return isRowLoaded(row);
+    }
+
+    private Page getPage(int row) {
+        AtomicReferenceArray<Page> pages = this.pages;
+        int index = row / pageSize;
+        return row >= 0 && index < pages.length() ? pages.get(index) : null;
+    }
+
+    //数据源发生变化，丢弃已读取的页并重新读取行数、列数，之后需要调用TableLayout.notifyDataSetChanged()
+    public void refresh() {
+        synchronized (lock) {
+            generation++;
+            loadingPages.clear();
+            nearPages.clear();
+            sorted = false;
+            visibleSourceRows = null;
+            visibleLastRow = -1;
+            byteCount = 0;
+            rowCount = source.getRowCount();
+            columnCount = source.getColumnCount();
+            pages = new AtomicReferenceArray<>(getPageCount(rowCount));
+        }
+    }
+
+    //可见的行为[firstRow, lastRow]，读取这些行所在的页及滚动方向上之后的页
+    public void onVisibleRowsChanged(int firstRow, int lastRow) {
+        synchronized (lock) {
+            if (firstRow == visibleFirstRow && lastRow == visibleLastRow && !sorted) {
+                return;
+            }
+            updateDirection(firstRow);
+            visibleFirstRow = firstRow;
+            visibleLastRow = lastRow;
+            sorted = false;
+            nearPages.clear();
+            visibleSourceRows = null;
+            int firstPage = firstRow / pageSize;
+            int lastPage = lastRow / pageSize;
+            for (int page = firstPage; page <= lastPage; page++) {
+                requestPage(page);
+            }
+            for (int i = 1; i <= prefetchPages; i++) {
+                requestPage(direction > 0 ? lastPage + i : firstPage - i);
+            }
+        }
+    }
+
+    /**
+     * 排序、筛选后显示时调用，sortedAdapter的行来自该adapter
+     * 读取可见的行所在的页，再沿滚动方向找到之后的行所在的prefetchPages个页预读
+     *
+     * @param firstRow 显示的行号
+     */
+    public void onVisibleRowsChanged(SortedTableAdapter sortedAdapter, int firstRow, int lastRow) {
+        int[] rows = sortedAdapter.getRows();
+        if (rows == null) {
+            onVisibleRowsChanged(firstRow, lastRow);
+            return;
+        }
+        synchronized (lock) {
+            if (firstRow == visibleFirstRow && lastRow == visibleLastRow && rows == visibleSourceRows) {
+                return;
+            }
+            updateDirection(firstRow);
+            visibleFirstRow = firstRow;
+            visibleLastRow = lastRow;
+            visibleSourceRows = rows;
+            sorted = true;
+            nearPages.clear();
+            for (int row = firstRow; row <= lastRow && row < rows.length; row++) {
+                nearPages.set(rows[row] / pageSize);
+            }
+            for (int page = nearPages.nextSetBit(0); page >= 0; page = nearPages.nextSetBit(page + 1)) {
+                requestPage(page);
+            }
+            //最多向后查找prefetchPages页的行数
+            int prefetched = 0;
+            int step = direction > 0 ? 1 : -1;
+            int row = direction > 0 ? lastRow + 1 : firstRow - 1;
+            for (int i = 0; i < prefetchPages * pageSize && prefetched < prefetchPages && row >= 0 && row < rows.length; i++, row += step) {
+                int page = rows[row] / pageSize;
+                if (!nearPages.get(page)) {
+                    nearPages.set(page);
+                    requestPage(page);
+                    prefetched++;
+                }
+            }
+        }
+    }
+
+    private void updateDirection(int firstRow) {
+        if (firstRow != visibleFirstRow) {
+            direction = firstRow > visibleFirstRow ? 1 : -1;
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        Page page = getPage(row);
+        if (page == null) {
+            out.append(placeholder);
+            return;
+        }
+        String value = page.cells[(row - page.start) * page.columnCount + column];
+        if (value != null) {
+            out.append(value);
+        }
+    }
+
+    private void requestPage(final int index) {
+        final int start = index * pageSize;
+        if (index < 0 || start >= rowCount || pages.get(index) != null || loadingPages.get(index)) {
+            return;
+        }
+        loadingPages.set(index);
+        final int count = Math.min(pageSize, rowCount - start);
+        final int columns = columnCount;
+        final int requestGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                //排队期间已经滚动到很远的位置，不再需要该页
+                synchronized (lock) {
+                    if (requestGeneration != generation || !isNearVisibleRows(index)) {
+                        loadingPages.clear(index);
+                        return;
+                    }
+                }
+                final String[] cells = new String[count * columns];
+                source.loadRows(start, count, cells);
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(requestGeneration, index, new Page(start, count, columns, cells));
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int requestGeneration, int index, Page page) {
+        synchronized (lock) {
+            if (requestGeneration != generation) {
+                return;
+            }
+            loadingPages.clear(index);
+            pages.set(index, page);
+            byteCount += page.byteCount;
+            trimToSize();
+            //离可见区域太远，刚读取就被丢弃了，不通知，避免重新测量时再次读取
+            if (pages.get(index) == null) {
+                return;
+            }
+        }
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onRowsLoaded(this, page.start, page.count);
+        }
+    }
+
+    private boolean isNearVisibleRows(int index) {
+        if (visibleLastRow < 0) {
+            return true;
+        }
+        return getPageDistance(index) <= prefetchPages;
+    }
+
+    //与可见的页之间相隔的页数，可见的页为0；排序、筛选后可见及预读的页为0，其他页都视为超出预读范围
+    private int getPageDistance(int index) {
+        if (sorted) {
+            return nearPages.get(index) ? 0 : prefetchPages + 1;
+        }
+        int firstPage = visibleFirstRow / pageSize;
+        int lastPage = visibleLastRow / pageSize;
+        return index < firstPage ? firstPage - index : index > lastPage ? index - lastPage : 0;
+    }
+
+    //从离可见区域最远的页开始丢弃，可见的页不会被丢弃
+    private void trimToSize() {
+        while (byteCount > maxBytes) {
+            int farthest = -1;
+            int farthestDistance = 0;
+            int pageCount = pages.length();
+            for (int index = 0; index < pageCount; index++) {
+                if (pages.get(index) == null) {
+                    continue;
+                }
+                int distance = getPageDistance(index);
+                if (distance > farthestDistance) {
+                    farthest = index;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) {
+                return;
+            }
+            byteCount -= pages.getAndSet(farthest, null).byteCount;
+        }
+    }
+
+    //在callbackExecutor中调用
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private static class Page {
+
+        final int start;
+        final int count;
+        //读取时的列数，refresh()之后可能与adapter的列数不同
+        final int columnCount;
+        final String[] cells;
+        final long byteCount;
+
+        Page(int start, int count, int columnCount, String[] cells) {
+            this.start = start;
+            this.count = count;
+            this.columnCount = columnCount;
+            this.cells = cells;
+            //按String对象头、char数组估算
+            long bytes = 16 + 4L * cells.length;
+            for (String cell : cells) {
+                if (cell != null) {
+                    bytes += 40 + 2L * cell.length();
+                }
+            }
+            byteCount = bytes;
+        }
+
+    }
+
+    public interface DataSource {
+
+        //总行数，包括第0行(标题)
+        int getRowCount();
+
+        int getColumnCount();
+
+        //在executor中调用，读取[start, start + count)行，第i行第j列写入cells[i * getColumnCount() + j]
+        void loadRows(int start, int count, String[] cells);
+
+    }
+
+    public interface Listener {
+
+        //第positionStart行开始的itemCount行读取完成，通常调用TableLayout.notifyRowRangeChanged()
+        void onRowsLoaded(PagedTableAdapter adapter, int positionStart, int itemCount);
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package win.smartown.android.library.tableLayout;
+
+import java.util.Arrays;
+
+import win.smartown.android.library.tableLayout.engine.RowSorter;
+
+/**
+ * 按行号数组显示另一个adapter的行，用于排序、筛选，不复制数据
+ * 行号数组由RowSorter在后台线程计算，在UI线程通过setRows()整体替换
+ */
+public class SortedTableAdapter implements LazyTableCellAdapter {
+
+    private final TableCellAdapter adapter;
+    //第i行显示adapter中的第rows[i]行，为null时与adapter的顺序相同
+    private int[] rows;
+    //inverse[row]为adapter中第row行显示的位置，被筛选掉为-1
+    private int[] inverse;
+
+    public SortedTableAdapter(TableCellAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    public TableCellAdapter getAdapter() {
+        return adapter;
+    }
+
+    public int[] getRows() {
+        return rows;
+    }
+
+    public void setRows(int[] rows, int[] inverse) {
+        this.rows = rows;
+        this.inverse = inverse;
+    }
+
+    //显示的第row行在adapter中的行号
+    public int getSourceRow(int row) {
+        return rows == null ? row : rows[row];
+    }
+
+    //adapter中的第sourceRow行显示的位置，被筛选掉返回-1
+    public int getRow(int sourceRow) {
+        return inverse == null ? sourceRow : inverse[sourceRow];
+    }
+
+    //adapter在position处插入了count行，新的行先显示在最后，等待重新排序
+    public void onSourceRowsInserted(int position, int count) {
+        if (rows == null) {
+            return;
+        }
+        int oldCount = rows.length;
+        int[] inserted = Arrays.copyOf(rows, oldCount + count);
+        for (int i = 0; i < oldCount; i++) {
+            if (inserted[i] >= position) {
+                inserted[i] += count;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            inserted[oldCount + i] = position + i;
+        }
+        setRows(inserted, RowSorter.inverse(inserted, adapter.getRowCount()));
+    }
+
+    //adapter从position处删除了count行
+    public void onSourceRowsRemoved(int position, int count) {
+        if (rows == null) {
+            return;
+        }
+        int[] removed = new int[rows.length];
+        int length = 0;
+        for (int row : rows) {
+            if (row >= position + count) {
+                removed[length++] = row - count;
+            } else if (row < position) {
+                removed[length++] = row;
+            }
+        }
+        removed = Arrays.copyOf(removed, length);
+        setRows(removed, RowSorter.inverse(removed, adapter.getRowCount()));
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows == null ? adapter.getRowCount() : rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return adapter.getColumnCount();
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        adapter.getCell(getSourceRow(row), column, out);
+    }
+
+    //adapter不是LazyTableCellAdapter时所有行都可以读取
+    @Override
+    public boolean isRowAvailable(int row) {
+        return !(adapter instanceof LazyTableCellAdapter) || ((LazyTableCellAdapter) adapter).isRowAvailable(getSourceRow(row));
+    }
+
+}
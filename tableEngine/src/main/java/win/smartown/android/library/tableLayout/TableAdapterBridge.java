@@ -0,0 +1,69 @@
+package win.smartown.android.library.tableLayout;
+
+/**
+ * 将旧的TableAdapter包装为TableCellAdapter，每列的内容只在第一次用到时获取一次
+ */
+public class TableAdapterBridge implements TableCellAdapter {
+
+    private final TableAdapter adapter;
+    private String[][] columns;
+    private int rowCount = -1;
+
+    public TableAdapterBridge(TableAdapter adapter) {
+        this.adapter = adapter;
+        this.columns = new String[adapter.getColumnCount()][];
+    }
+
+    public TableAdapter getAdapter() {
+        return adapter;
+    }
+
+    public String[] getColumnContent(int column) {
+        String[] content = columns[column];
+        if (content == null) {
+            content = adapter.getColumnContent(column);
+            if (content == null) {
+                content = new String[0];
+            }
+            columns[column] = content;
+        }
+        return content;
+    }
+
+    //第column列的内容变化后调用，下次使用时重新获取
+    public void invalidateColumn(int column) {
+        columns[column] = null;
+    }
+
+    //列数或行数变化后调用
+    public void invalidate() {
+        columns = new String[adapter.getColumnCount()][];
+        rowCount = -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        if (rowCount < 0) {
+            int count = 0;
+            for (int i = 0; i < columns.length; i++) {
+                count = Math.max(count, getColumnContent(i).length);
+            }
+            rowCount = count;
+        }
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        String[] content = getColumnContent(column);
+        if (row < content.length && content[row] != null) {
+            out.append(content[row]);
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package win.smartown.android.library.tableLayout;
+
+/**
+ * 按单元格取数据的adapter，绘制时复用同一个StringBuilder，不会为每个单元格创建String
+ */
+public interface TableCellAdapter {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    //将第row行第column列的内容追加到out中，调用前out已被清空
+    void getCell(int row, int column, StringBuilder out);
+
+}
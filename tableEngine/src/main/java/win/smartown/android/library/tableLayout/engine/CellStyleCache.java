@@ -0,0 +1,126 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * 缓存已计算的单元格样式id，key为(row << 32) | column，开放寻址保存在数组中，读取、写入时不创建对象
+ * 数量达到上限后清空重新开始，只在UI线程使用
+ */
+public class CellStyleCache {
+
+    public static final int NOT_CACHED = Integer.MIN_VALUE;
+    public static final int DEFAULT_MAX_SIZE = 1 << 14;
+
+    private static final long EMPTY = -1;
+
+    private final int maxSize;
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    public CellStyleCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public CellStyleCache(int maxSize) {
+        this.maxSize = maxSize;
+        //负载不超过一半
+        int capacity = Integer.highestOneBit(Math.max(maxSize, 8) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //未缓存返回NOT_CACHED
+    public int get(int row, int column) {
+        long key = key(row, column);
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return NOT_CACHED;
+    }
+
+    public void put(int row, int column, int style) {
+        if (size >= maxSize) {
+            clear();
+        }
+        long key = key(row, column);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                values[i] = style;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = style;
+        size++;
+    }
+
+    public void invalidateCell(int row, int column) {
+        long key = key(row, column);
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    //[fromRow, toRow) x [fromColumn, toColumn)范围内的缓存失效
+    public void invalidate(int fromRow, int fromColumn, int toRow, int toColumn) {
+        //删除后之后的元素可能前移到i，重新检查i
+        int i = 0;
+        while (i < keys.length && size > 0) {
+            long key = keys[i];
+            int row = (int) (key >>> 32);
+            int column = (int) key;
+            if (key != EMPTY && row >= fromRow && row < toRow && column >= fromColumn && column < toColumn) {
+                removeAt(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    //删除后将之后同一探测序列中的元素前移，保证查找不会提前结束
+    private void removeAt(int index) {
+        int mask = keys.length - 1;
+        keys[index] = EMPTY;
+        size--;
+        for (int i = (index + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            long key = keys[i];
+            int value = values[i];
+            keys[i] = EMPTY;
+            size--;
+            put((int) (key >>> 32), (int) key, value);
+        }
+    }
+
+    private static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,13 @@
+package win.smartown.android.library.tableLayout.engine;
+
+/**
+ * 条件格式：根据单元格内容返回样式id，只对绘制的单元格计算，结果缓存到该单元格数据变化
+ */
+public interface CellStyleRule {
+
+    int NO_STYLE = -1;
+
+    //row为显示的行号，不匹配返回NO_STYLE
+    int getStyle(int row, int column, CharSequence text);
+
+}
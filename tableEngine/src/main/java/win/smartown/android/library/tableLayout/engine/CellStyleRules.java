@@ -0,0 +1,65 @@
+package win.smartown.android.library.tableLayout.engine;
+
+/**
+ * 常用的条件格式，第0行(标题)只匹配header()
+ */
+public final class CellStyleRules {
+
+    private CellStyleRules() {
+    }
+
+    //依次计算，返回第一个匹配的样式
+    public static CellStyleRule first(final CellStyleRule... rules) {
+        return new CellStyleRule() {
+            @Override
+            public int getStyle(int row, int column, CharSequence text) {
+                for (CellStyleRule rule : rules) {
+                    int style = rule.getStyle(row, column, text);
+                    if (style != NO_STYLE) {
+                        return style;
+                    }
+                }
+                return NO_STYLE;
+            }
+        };
+    }
+
+    public static CellStyleRule header(final int style) {
+        return new CellStyleRule() {
+            @Override
+            public int getStyle(int row, int column, CharSequence text) {
+                return row == 0 ? style : NO_STYLE;
+            }
+        };
+    }
+
+    //只对第column列使用rule
+    public static CellStyleRule column(final int column, final CellStyleRule rule) {
+        return new CellStyleRule() {
+            @Override
+            public int getStyle(int row, int c, CharSequence text) {
+                return c == column ? rule.getStyle(row, c, text) : NO_STYLE;
+            }
+        };
+    }
+
+    //小于0的数字，例如显示为红色
+    public static CellStyleRule negative(int style) {
+        return numberRange(Double.NEGATIVE_INFINITY, -Double.MIN_VALUE, style);
+    }
+
+    //数值在[min, max]之间，例如超过阈值时高亮
+    public static CellStyleRule numberRange(final double min, final double max, final int style) {
+        return new CellStyleRule() {
+            @Override
+            public int getStyle(int row, int column, CharSequence text) {
+                if (row == 0 || text.length() == 0) {
+                    return NO_STYLE;
+                }
+                double number = RowComparators.parseNumber(text);
+                return number >= min && number <= max ? style : NO_STYLE;
+            }
+        };
+    }
+
+}
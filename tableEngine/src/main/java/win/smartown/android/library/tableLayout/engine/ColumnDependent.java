@@ -0,0 +1,11 @@
+package win.smartown.android.library.tableLayout.engine;
+
+/**
+ * 只读取部分列的RowComparator、RowFilter实现该接口，其他列的数据变化后不需要重新排序、筛选
+ * 没有实现该接口的视为依赖所有列
+ */
+public interface ColumnDependent {
+
+    boolean dependsOnColumn(int column);
+
+}
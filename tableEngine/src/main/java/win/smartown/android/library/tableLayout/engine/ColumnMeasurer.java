@@ -0,0 +1,125 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import win.smartown.android.library.tableLayout.LazyTableCellAdapter;
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 测量列宽，结果写入widths(每列最宽文字的宽度)和widestRows(最宽文字所在行)
+ * sampled模式下行数较多时只测量部分行：表头、开头和结尾各sampleRows行，以及中间字符数最多的sampleRows行
+ * LazyTableCellAdapter中还未读取的行不测量，读取完成后由notifyRowRangeChanged()测量
+ */
+public class ColumnMeasurer {
+
+    //sampled模式下从中间的行里最多检查这么多行的字符数
+    private static final int CANDIDATE_SCAN_ROWS = 1024;
+
+    private final TableCellAdapter adapter;
+    private final TextMeasurer textMeasurer;
+    private final boolean sampled;
+    private final int sampleRows;
+    private final StringBuilder text = new StringBuilder();
+    private final int[] candidateRows;
+    private final int[] candidateLengths;
+    //部分行可能还未读取时不为null
+    private final LazyTableCellAdapter lazyAdapter;
+
+    public ColumnMeasurer(TableCellAdapter adapter, TextMeasurer textMeasurer, boolean sampled, int sampleRows) {
+        this.adapter = adapter;
+        lazyAdapter = adapter instanceof LazyTableCellAdapter ? (LazyTableCellAdapter) adapter : null;
+        this.textMeasurer = textMeasurer;
+        this.sampled = sampled;
+        this.sampleRows = Math.max(1, sampleRows);
+        candidateRows = new int[this.sampleRows];
+        candidateLengths = new int[this.sampleRows];
+    }
+
+    public float measureCell(int row, int column) {
+        if (!isRowAvailable(row)) {
+            return 0;
+        }
+        text.setLength(0);
+        adapter.getCell(row, column, text);
+        if (text.length() == 0) {
+            return 0;
+        }
+        return textMeasurer.measureText(text, 0, text.length());
+    }
+
+    public void measureColumn(int column, int rowCount, float[] widths, int[] widestRows) {
+        widths[column] = 0;
+        widestRows[column] = -1;
+        measureRows(column, 0, rowCount, widths, widestRows);
+    }
+
+    //测量[fromRow, toRow)范围内的行，只会增大该列的宽度
+    public void measureRows(int column, int fromRow, int toRow, float[] widths, int[] widestRows) {
+        if (!sampled || toRow - fromRow <= sampleRows * 3 + 1) {
+            measureEach(column, fromRow, toRow, widths, widestRows);
+            return;
+        }
+        //第0行是表头，总是测量
+        if (fromRow == 0) {
+            measure(0, column, widths, widestRows);
+            fromRow = 1;
+        }
+        measureEach(column, fromRow, fromRow + sampleRows, widths, widestRows);
+        measureEach(column, toRow - sampleRows, toRow, widths, widestRows);
+        measureLongest(column, fromRow + sampleRows, toRow - sampleRows, widths, widestRows);
+    }
+
+    private void measureEach(int column, int fromRow, int toRow, float[] widths, int[] widestRows) {
+        for (int row = fromRow; row < toRow; row++) {
+            measure(row, column, widths, widestRows);
+        }
+    }
+
+    //按固定间隔检查中间行的字符数，只测量字符数最多的sampleRows行
+    private void measureLongest(int column, int fromRow, int toRow, float[] widths, int[] widestRows) {
+        int step = Math.max(1, (toRow - fromRow) / CANDIDATE_SCAN_ROWS);
+        int count = 0;
+        int shortest = 0;
+        for (int row = fromRow; row < toRow; row += step) {
+            if (!isRowAvailable(row)) {
+                continue;
+            }
+            text.setLength(0);
+            adapter.getCell(row, column, text);
+            int length = text.length();
+            if (count < candidateRows.length) {
+                candidateRows[count] = row;
+                candidateLengths[count] = length;
+                if (length < candidateLengths[shortest]) {
+                    shortest = count;
+                }
+                count++;
+            } else if (length > candidateLengths[shortest]) {
+                candidateRows[shortest] = row;
+                candidateLengths[shortest] = length;
+                for (int i = 0; i < count; i++) {
+                    if (candidateLengths[i] < candidateLengths[shortest]) {
+                        shortest = i;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            measure(candidateRows[i], column, widths, widestRows);
+        }
+    }
+
+    private boolean isRowAvailable(int row) {
+        return lazyAdapter == null || lazyAdapter.isRowAvailable(row);
+    }
+
+    private void measure(int row, int column, float[] widths, int[] widestRows) {
+        if (!isRowAvailable(row)) {
+            return;
+        }
+        float width = measureCell(row, column);
+        if (width > widths[column] || widestRows[column] < 0) {
+            widths[column] = width;
+            widestRows[column] = row;
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.Arrays;
+
+/**
+ * 一组连续的行或列的尺寸及偏移量，尺寸之和保存在树状数组(Fenwick tree)中
+ * 修改单个尺寸、查询偏移量、根据偏移量查找所在位置都是O(log n)
+ * 全部使用默认尺寸时不分配数组，偏移量直接相乘得到
+ */
+public class OffsetIndex {
+
+    private int count;
+    private int defaultSize;
+    //单独设置的尺寸，-1表示使用defaultSize，为null时全部使用defaultSize
+    private int[] sizes;
+    //下标从1开始，tree[i]为(i - lowbit(i), i]范围内的尺寸之和
+    private int[] tree;
+    private int total;
+
+    public OffsetIndex(int defaultSize) {
+        this.defaultSize = defaultSize;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    //已单独设置的尺寸在count范围内的保留
+    public void setCount(int count) {
+        if (sizes != null && sizes.length != count) {
+            int oldCount = Math.min(this.count, count);
+            sizes = Arrays.copyOf(sizes, count);
+            Arrays.fill(sizes, oldCount, count, -1);
+        }
+        this.count = count;
+        rebuild();
+    }
+
+    public int getDefaultSize() {
+        return defaultSize;
+    }
+
+    public void setDefaultSize(int defaultSize) {
+        this.defaultSize = defaultSize;
+        rebuild();
+    }
+
+    public boolean hasSize(int index) {
+        return sizes != null && sizes[index] >= 0;
+    }
+
+    public int getSize(int index) {
+        return hasSize(index) ? sizes[index] : defaultSize;
+    }
+
+    public void setSize(int index, int size) {
+        if (sizes == null) {
+            sizes = new int[count];
+            Arrays.fill(sizes, -1);
+            rebuild();
+        }
+        int delta = size - getSize(index);
+        sizes[index] = size;
+        update(index, delta);
+    }
+
+    public void clearSize(int index) {
+        if (!hasSize(index)) {
+            return;
+        }
+        int delta = defaultSize - sizes[index];
+        sizes[index] = -1;
+        update(index, delta);
+    }
+
+    public void clearSizes() {
+        sizes = null;
+        rebuild();
+    }
+
+    //一次设置全部尺寸，O(n)
+    public void setSizes(int[] sizes, int count) {
+        if (this.sizes == null || this.sizes.length != count) {
+            this.sizes = new int[count];
+        }
+        System.arraycopy(sizes, 0, this.sizes, 0, count);
+        this.count = count;
+        rebuild();
+    }
+
+    //在position处插入count个默认尺寸
+    public void insert(int position, int count) {
+        if (sizes != null) {
+            int[] inserted = new int[this.count + count];
+            System.arraycopy(sizes, 0, inserted, 0, position);
+            Arrays.fill(inserted, position, position + count, -1);
+            System.arraycopy(sizes, position, inserted, position + count, this.count - position);
+            sizes = inserted;
+        }
+        this.count += count;
+        rebuild();
+    }
+
+    public void remove(int position, int count) {
+        if (sizes != null) {
+            int[] removed = new int[this.count - count];
+            System.arraycopy(sizes, 0, removed, 0, position);
+            System.arraycopy(sizes, position + count, removed, position, this.count - position - count);
+            sizes = removed;
+        }
+        this.count -= count;
+        rebuild();
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    //第index个的起始偏移量，index为count时返回总尺寸
+    public int getOffset(int index) {
+        if (tree == null) {
+            return index * defaultSize;
+        }
+        int offset = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            offset += tree[i];
+        }
+        return offset;
+    }
+
+    //返回offset所在的位置，不在范围内返回-1，尺寸为0的位置不会被返回
+    public int indexOf(float offset) {
+        if (offset < 0 || offset >= total) {
+            return -1;
+        }
+        if (tree == null) {
+            return (int) (offset / defaultSize);
+        }
+        int index = 0;
+        float remaining = offset;
+        for (int step = Integer.highestOneBit(count); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= count && tree[next] <= remaining) {
+                index = next;
+                remaining -= tree[next];
+            }
+        }
+        return index;
+    }
+
+    private void update(int index, int delta) {
+        for (int i = index + 1; i <= count; i += i & -i) {
+            tree[i] += delta;
+        }
+        total += delta;
+    }
+
+    private void rebuild() {
+        if (sizes == null) {
+            tree = null;
+            total = count * defaultSize;
+            return;
+        }
+        if (tree == null || tree.length != count + 1) {
+            tree = new int[count + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        total = 0;
+        for (int i = 1; i <= count; i++) {
+            int size = getSize(i - 1);
+            total += size;
+            tree[i] += size;
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 比较adapter中的两行，用于排序，常用的实现见RowComparators
+ */
+public interface RowComparator {
+
+    //在排序线程中调用，可能同时在多个线程中调用，buffer1、buffer2为当前线程独占的缓冲区
+    int compare(TableCellAdapter adapter, int row1, int row2, StringBuilder buffer1, StringBuilder buffer2);
+
+}
@@ -0,0 +1,175 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import win.smartown.android.library.tableLayout.ColumnarTableAdapter;
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 按某一列的内容比较两行
+ */
+public final class RowComparators {
+
+    //10的0~22次方都可以用double精确表示
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    //不超过2^53的整数可以用double精确表示
+    private static final long MAX_EXACT = 1L << 53;
+
+    private RowComparators() {
+    }
+
+    //按文字逐个字符比较
+    public static RowComparator text(final int column) {
+        return new ColumnComparator(column) {
+            @Override
+            public int compare(TableCellAdapter adapter, int row1, int row2, StringBuilder buffer1, StringBuilder buffer2) {
+                //ColumnarTableAdapter的文字列直接比较字典中的文字
+                if (adapter instanceof ColumnarTableAdapter && row1 > 0 && row2 > 0) {
+                    ColumnarTableAdapter.Column data = ((ColumnarTableAdapter) adapter).getColumn(column);
+                    if (data instanceof ColumnarTableAdapter.StringColumn) {
+                        return data.compare(row1 - 1, row2 - 1);
+                    }
+                }
+                readCell(adapter, row1, column, buffer1);
+                readCell(adapter, row2, column, buffer2);
+                return compareText(buffer1, buffer2);
+            }
+        };
+    }
+
+    //按数值比较，不是数字的单元格排在最后
+    public static RowComparator number(final int column) {
+        return new ColumnComparator(column) {
+            @Override
+            public int compare(TableCellAdapter adapter, int row1, int row2, StringBuilder buffer1, StringBuilder buffer2) {
+                //ColumnarTableAdapter的数字列直接比较数组中的数值，不格式化、不解析
+                if (adapter instanceof ColumnarTableAdapter && row1 > 0 && row2 > 0) {
+                    ColumnarTableAdapter.Column data = ((ColumnarTableAdapter) adapter).getColumn(column);
+                    if (data.isNumeric()) {
+                        return data.compare(row1 - 1, row2 - 1);
+                    }
+                }
+                readCell(adapter, row1, column, buffer1);
+                readCell(adapter, row2, column, buffer2);
+                return compareNumber(parseNumber(buffer1), parseNumber(buffer2));
+            }
+        };
+    }
+
+    public static RowComparator reverse(final RowComparator comparator) {
+        return new ReverseComparator(comparator);
+    }
+
+    //只比较某一列
+    private abstract static class ColumnComparator implements RowComparator, ColumnDependent {
+
+        private final int column;
+
+        ColumnComparator(int column) {
+            this.column = column;
+        }
+
+        @Override
+        public boolean dependsOnColumn(int column) {
+            return column == this.column;
+        }
+
+    }
+
+    private static class ReverseComparator implements RowComparator, ColumnDependent {
+
+        private final RowComparator comparator;
+
+        ReverseComparator(RowComparator comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(TableCellAdapter adapter, int row1, int row2, StringBuilder buffer1, StringBuilder buffer2) {
+            return comparator.compare(adapter, row2, row1, buffer1, buffer2);
+        }
+
+        @Override
+        public boolean dependsOnColumn(int column) {
+            return RowSorter.dependsOnColumn(comparator, column);
+        }
+
+    }
+
+    static void readCell(TableCellAdapter adapter, int row, int column, StringBuilder out) {
+        out.setLength(0);
+        adapter.getCell(row, column, out);
+    }
+
+    static int compareText(CharSequence text1, CharSequence text2) {
+        int length1 = text1.length();
+        int length2 = text2.length();
+        int length = Math.min(length1, length2);
+        for (int i = 0; i < length; i++) {
+            char c1 = text1.charAt(i);
+            char c2 = text2.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+
+    //NaN排在最后
+    static int compareNumber(double number1, double number2) {
+        boolean nan1 = Double.isNaN(number1);
+        boolean nan2 = Double.isNaN(number2);
+        if (nan1 || nan2) {
+            return nan1 == nan2 ? 0 : nan1 ? 1 : -1;
+        }
+        return Double.compare(number1, number2);
+    }
+
+    //解析整数或小数，不创建String，其他格式交给Double.parseDouble()，不是数字返回NaN
+    static double parseNumber(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        if (i == length) {
+            return Double.NaN;
+        }
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9' && digits < 18) {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                try {
+                    return Double.parseDouble(text.toString());
+                } catch (NumberFormatException e) {
+                    return Double.NaN;
+                }
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double number = value;
+        if (fractionDigits > 0) {
+            //被除数和除数都是精确值时一次除法的结果与Double.parseDouble()相同
+            if (value > MAX_EXACT || fractionDigits >= POW10.length) {
+                return Double.parseDouble(text.toString());
+            }
+            number /= POW10[fractionDigits];
+        }
+        return negative ? -number : number;
+    }
+
+}
@@ -0,0 +1,13 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 筛选adapter中的行，常用的实现见RowFilters
+ */
+public interface RowFilter {
+
+    //在后台线程中调用，buffer为当前线程独占的缓冲区
+    boolean accept(TableCellAdapter adapter, int row, StringBuilder buffer);
+
+}
@@ -0,0 +1,58 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import win.smartown.android.library.tableLayout.ColumnarTableAdapter;
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 按某一列的内容筛选行
+ */
+public final class RowFilters {
+
+    private RowFilters() {
+    }
+
+    //第column列包含text的行
+    public static RowFilter contains(final int column, CharSequence text) {
+        final String query = text.toString();
+        return new ColumnFilter(column) {
+            @Override
+            public boolean accept(TableCellAdapter adapter, int row, StringBuilder buffer) {
+                RowComparators.readCell(adapter, row, column, buffer);
+                return buffer.indexOf(query) >= 0;
+            }
+        };
+    }
+
+    //第column列的数值在[min, max]之间的行
+    public static RowFilter numberRange(final int column, final double min, final double max) {
+        return new ColumnFilter(column) {
+            @Override
+            public boolean accept(TableCellAdapter adapter, int row, StringBuilder buffer) {
+                if (adapter instanceof ColumnarTableAdapter && ((ColumnarTableAdapter) adapter).isNumeric(column)) {
+                    double number = ((ColumnarTableAdapter) adapter).getNumber(row, column);
+                    return number >= min && number <= max;
+                }
+                RowComparators.readCell(adapter, row, column, buffer);
+                double number = RowComparators.parseNumber(buffer);
+                return number >= min && number <= max;
+            }
+        };
+    }
+
+    //只读取某一列
+    private abstract static class ColumnFilter implements RowFilter, ColumnDependent {
+
+        private final int column;
+
+        ColumnFilter(int column) {
+            this.column = column;
+        }
+
+        @Override
+        public boolean dependsOnColumn(int column) {
+            return column == this.column;
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 计算排序、筛选后的行顺序，只生成行号数组，不复制adapter中的数据
+ * 第0行是标题，始终排在最前面
+ */
+public final class RowSorter {
+
+    //行数超过该值并且提供了executor时分段并行排序
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private RowSorter() {
+    }
+
+    /**
+     * 在当前线程中计算，comparator、filter都可以为null
+     *
+     * @param executor    不为null时排序分成多段，分别在executor和当前线程中进行
+     * @param parallelism 最多分成几段
+     * @return 第i行显示adapter中的第rows[i]行
+     */
+    public static int[] sortRows(TableCellAdapter adapter, RowComparator comparator, RowFilter filter, Executor executor, int parallelism) {
+        int rowCount = adapter.getRowCount();
+        int[] rows = new int[rowCount];
+        int count = 0;
+        StringBuilder buffer = new StringBuilder();
+        for (int row = 0; row < rowCount; row++) {
+            if (row == 0 || filter == null || filter.accept(adapter, row, buffer)) {
+                rows[count++] = row;
+            }
+        }
+        if (count != rowCount) {
+            rows = Arrays.copyOf(rows, count);
+        }
+        if (comparator != null && count > 2) {
+            sort(adapter, rows, 1, count, comparator, executor, parallelism);
+        }
+        return rows;
+    }
+
+    //第column列的数据变化后是否需要重新排序、筛选，comparator、filter都可以为null
+    public static boolean dependsOnColumn(Object comparatorOrFilter, int column) {
+        if (comparatorOrFilter == null) {
+            return false;
+        }
+        return !(comparatorOrFilter instanceof ColumnDependent) || ((ColumnDependent) comparatorOrFilter).dependsOnColumn(column);
+    }
+
+    //inverse[rows[i]] = i，被筛选掉的行为-1
+    public static int[] inverse(int[] rows, int sourceRowCount) {
+        int[] inverse = new int[sourceRowCount];
+        Arrays.fill(inverse, -1);
+        for (int i = 0; i < rows.length; i++) {
+            inverse[rows[i]] = i;
+        }
+        return inverse;
+    }
+
+    //稳定排序rows[from, to)
+    public static void sort(final TableCellAdapter adapter, final int[] rows, int from, int to, final RowComparator comparator, Executor executor, int parallelism) {
+        final int[] buffer = new int[rows.length];
+        int length = to - from;
+        if (executor == null || parallelism < 2 || length < PARALLEL_THRESHOLD) {
+            mergeSort(adapter, rows, buffer, from, to, comparator, new StringBuilder(), new StringBuilder());
+            return;
+        }
+        int chunkCount = Math.min(parallelism, length / (PARALLEL_THRESHOLD / 2));
+        final int[] bounds = new int[chunkCount + 1];
+        for (int i = 0; i <= chunkCount; i++) {
+            bounds[i] = from + (int) ((long) length * i / chunkCount);
+        }
+        //当前线程也领取分段，不会因为executor繁忙(例如正在执行当前任务的单线程executor)而一直等待
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch sorted = new CountDownLatch(chunkCount);
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                StringBuilder buffer1 = new StringBuilder();
+                StringBuilder buffer2 = new StringBuilder();
+                int chunk;
+                while ((chunk = nextChunk.getAndIncrement()) < bounds.length - 1) {
+                    try {
+                        mergeSort(adapter, rows, buffer, bounds[chunk], bounds[chunk + 1], comparator, buffer1, buffer2);
+                    } finally {
+                        sorted.countDown();
+                    }
+                }
+            }
+        };
+        for (int i = 1; i < chunkCount; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+        try {
+            sorted.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        //两两合并已排序的分段
+        StringBuilder buffer1 = new StringBuilder();
+        StringBuilder buffer2 = new StringBuilder();
+        for (int step = 1; step < chunkCount; step *= 2) {
+            for (int i = 0; i + step < chunkCount; i += step * 2) {
+                int end = bounds[Math.min(i + step * 2, chunkCount)];
+                merge(adapter, rows, buffer, bounds[i], bounds[i + step], end, comparator, buffer1, buffer2);
+            }
+        }
+    }
+
+    private static void mergeSort(TableCellAdapter adapter, int[] rows, int[] buffer, int from, int to, RowComparator comparator, StringBuilder buffer1, StringBuilder buffer2) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(adapter, rows[j], row, buffer1, buffer2) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(adapter, rows, buffer, from, middle, comparator, buffer1, buffer2);
+        mergeSort(adapter, rows, buffer, middle, to, comparator, buffer1, buffer2);
+        merge(adapter, rows, buffer, from, middle, to, comparator, buffer1, buffer2);
+    }
+
+    private static void merge(TableCellAdapter adapter, int[] rows, int[] buffer, int from, int middle, int to, RowComparator comparator, StringBuilder buffer1, StringBuilder buffer2) {
+        //两段已经有序
+        if (comparator.compare(adapter, rows[middle - 1], rows[middle], buffer1, buffer2) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            if (comparator.compare(adapter, buffer[j], buffer[i], buffer1, buffer2) < 0) {
+                rows[k++] = buffer[j++];
+            } else {
+                rows[k++] = buffer[i++];
+            }
+        }
+        while (i < middle) {
+            rows[k++] = buffer[i++];
+        }
+        while (j < to) {
+            rows[k++] = buffer[j++];
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 将adapter逐行写为UTF-8编码的CSV，包含分隔符、引号、换行的字段加引号
+ * 每个单元格读入同一个StringBuilder，编码后写入固定大小的缓冲区，占用内存与表格大小无关
+ * 不能同时用于多次导出
+ */
+public class TableCsvWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final char separator;
+    private String lineSeparator = "\r\n";
+    private final byte[] buffer;
+    private int position;
+    private OutputStream out;
+    private final StringBuilder cell = new StringBuilder();
+    private final int[] range = new int[4];
+
+    public TableCsvWriter() {
+        this(',', DEFAULT_BUFFER_SIZE);
+    }
+
+    //separator为'\t'时导出TSV
+    public TableCsvWriter(char separator, int bufferSize) {
+        this.separator = separator;
+        //最长的UTF-8字符为4字节
+        buffer = new byte[Math.max(bufferSize, 16)];
+    }
+
+    public String getLineSeparator() {
+        return lineSeparator;
+    }
+
+    //默认为"\r\n"
+    public void setLineSeparator(String lineSeparator) {
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * 按adapter的顺序写入全部行，写入后flush，不关闭out
+     *
+     * @param selection 为null或没有选中的单元格时导出全部单元格，否则只导出有选中单元格的行和列，其中未选中的单元格为空，
+     *                  第0行(标题)始终导出
+     * @return 写入的行数
+     */
+    public int write(TableCellAdapter adapter, TableSelection selection, OutputStream out) throws IOException {
+        this.out = out;
+        position = 0;
+        try {
+            int rowCount = adapter.getRowCount();
+            int columnCount = adapter.getColumnCount();
+            boolean[] columns = selection == null || selection.isEmpty() ? null : getSelectedColumns(selection, columnCount);
+            int written = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (columns != null && row != 0 && !isRowSelected(selection, row)) {
+                    continue;
+                }
+                boolean first = true;
+                for (int column = 0; column < columnCount; column++) {
+                    if (columns != null && !columns[column]) {
+                        continue;
+                    }
+                    if (!first) {
+                        writeChar(separator);
+                    }
+                    first = false;
+                    if (columns == null || row == 0 || selection.isSelected(row, column)) {
+                        cell.setLength(0);
+                        adapter.getCell(row, column, cell);
+                        writeField(cell);
+                    }
+                }
+                writeText(lineSeparator);
+                written++;
+            }
+            flushBuffer();
+            out.flush();
+            return written;
+        } finally {
+            this.out = null;
+            if (cell.capacity() > buffer.length) {
+                //一个很长的单元格之后不再保留大的缓冲区
+                cell.setLength(0);
+                cell.trimToSize();
+            }
+        }
+    }
+
+    private boolean[] getSelectedColumns(TableSelection selection, int columnCount) {
+        boolean[] columns = new boolean[columnCount];
+        int rangeCount = selection.getRangeCount();
+        for (int i = 0; i < rangeCount; i++) {
+            selection.getRange(i, range);
+            for (int column = range[1]; column < range[3] && column < columnCount; column++) {
+                columns[column] = true;
+            }
+        }
+        return columns;
+    }
+
+    private boolean isRowSelected(TableSelection selection, int row) {
+        int rangeCount = selection.getRangeCount();
+        for (int i = 0; i < rangeCount; i++) {
+            selection.getRange(i, range);
+            if (row >= range[0] && row < range[2]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeField(CharSequence text) throws IOException {
+        int length = text.length();
+        boolean quote = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == separator || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            writeText(text);
+            return;
+        }
+        writeChar('"');
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                writeChar('"');
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeChar(c);
+            }
+        }
+        writeChar('"');
+    }
+
+    private void writeText(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeChar(c);
+            }
+        }
+    }
+
+    //单独的代理字符按U+FFFD写入
+    private void writeChar(char c) throws IOException {
+        if (c < 0x80) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            buffer[position++] = (byte) c;
+        } else {
+            writeCodePoint(Character.isSurrogate(c) ? 0xFFFD : c);
+        }
+    }
+
+    private void writeCodePoint(int codePoint) throws IOException {
+        if (position + 4 > buffer.length) {
+            flushBuffer();
+        }
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+}
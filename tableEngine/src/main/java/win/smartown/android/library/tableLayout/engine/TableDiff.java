@@ -0,0 +1,322 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.Arrays;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 新旧两份数据之间的差异：按行的key用Myers算法计算插入、删除的行，key相同的行再逐个比较单元格
+ * 插入、删除按顺序依次作用于旧数据即得到新数据，插入的位置同时也是在新数据中的行号
+ * 可以在后台线程计算，计算期间两个adapter都不能被修改
+ */
+public class TableDiff {
+
+    public static final int INSERT = 0;
+    public static final int REMOVE = 1;
+
+    //去掉首尾相同的行后，插入、删除的行数超过该值时放弃计算，直接替换全部数据
+    static final int MAX_EDIT_DISTANCE = 2048;
+
+    //每个操作依次保存类型、位置、行数
+    private int[] operations = new int[24];
+    private int operationCount;
+    //变化的单元格依次保存在新数据中的行、列
+    private int[] changedCells = new int[16];
+    private int changedCellCount;
+
+    private TableDiff() {
+    }
+
+    /**
+     * @param rowKey 为null时以整行内容作为key，内容变化的行会被当作删除后再插入
+     * @return 列数不同或差异太大时返回null，需要整体替换
+     */
+    public static TableDiff compute(TableCellAdapter oldAdapter, TableCellAdapter newAdapter, RowKey rowKey) {
+        int columnCount = oldAdapter.getColumnCount();
+        if (columnCount != newAdapter.getColumnCount()) {
+            return null;
+        }
+        if (rowKey == null) {
+            rowKey = contentKey();
+        }
+        StringBuilder buffer = new StringBuilder();
+        Object[] oldKeys = getKeys(oldAdapter, rowKey, buffer);
+        Object[] newKeys = getKeys(newAdapter, rowKey, buffer);
+        TableDiff diff = new TableDiff();
+        int[] matches = diff.diffRows(oldKeys, newKeys);
+        if (matches == null) {
+            return null;
+        }
+        //key相同的行逐个比较单元格
+        StringBuilder oldText = new StringBuilder();
+        StringBuilder newText = new StringBuilder();
+        for (int newRow = 0; newRow < matches.length; newRow++) {
+            int oldRow = matches[newRow];
+            if (oldRow < 0) {
+                continue;
+            }
+            for (int column = 0; column < columnCount; column++) {
+                RowComparators.readCell(oldAdapter, oldRow, column, oldText);
+                RowComparators.readCell(newAdapter, newRow, column, newText);
+                if (RowComparators.compareText(oldText, newText) != 0) {
+                    diff.addChangedCell(newRow, column);
+                }
+            }
+        }
+        return diff;
+    }
+
+    private static Object[] getKeys(TableCellAdapter adapter, RowKey rowKey, StringBuilder buffer) {
+        Object[] keys = new Object[adapter.getRowCount()];
+        for (int row = 0; row < keys.length; row++) {
+            keys[row] = rowKey.getKey(adapter, row, buffer);
+        }
+        return keys;
+    }
+
+    //返回新数据中每一行对应的旧行号，新插入的行为-1
+    private int[] diffRows(Object[] oldKeys, Object[] newKeys) {
+        int oldCount = oldKeys.length;
+        int newCount = newKeys.length;
+        int[] matches = new int[newCount];
+        Arrays.fill(matches, -1);
+        //首尾相同的行不参与Myers算法
+        int prefix = 0;
+        while (prefix < oldCount && prefix < newCount && equal(oldKeys[prefix], newKeys[prefix])) {
+            matches[prefix] = prefix;
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldCount - prefix && suffix < newCount - prefix
+                && equal(oldKeys[oldCount - 1 - suffix], newKeys[newCount - 1 - suffix])) {
+            matches[newCount - 1 - suffix] = oldCount - 1 - suffix;
+            suffix++;
+        }
+        int n = oldCount - prefix - suffix;
+        int m = newCount - prefix - suffix;
+        if (n == 0 && m == 0) {
+            return matches;
+        }
+        int[][] trace = findPath(oldKeys, newKeys, prefix, n, m);
+        if (trace == null) {
+            return null;
+        }
+        //从终点回溯，得到倒序的删除、插入
+        int[] edits = new int[(trace.length - 1) * 2];
+        int editCount = 0;
+        int x = n;
+        int y = m;
+        for (int d = trace.length - 1; d > 0; d--) {
+            int[] v = trace[d - 1];
+            int k = x - y;
+            boolean down = k == -d || (k != d && get(v, d - 1, k - 1) < get(v, d - 1, k + 1));
+            int previousK = down ? k + 1 : k - 1;
+            int previousX = get(v, d - 1, previousK);
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+                matches[prefix + y] = prefix + x;
+            }
+            //插入新数据中的previousY行，或删除旧数据中的previousX行
+            edits[editCount++] = down ? INSERT : REMOVE;
+            edits[editCount++] = down ? previousY : previousX;
+            x = previousX;
+            y = previousY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            matches[prefix + y] = prefix + x;
+        }
+        //正序转为依次作用于旧数据的操作，position为操作时的位置
+        int position = prefix;
+        int oldIndex = 0;
+        int newIndex = 0;
+        for (int i = editCount - 2; i >= 0; i -= 2) {
+            int type = edits[i];
+            int index = edits[i + 1];
+            //跳过两个操作之间相同的行
+            int skipped = type == INSERT ? index - newIndex : index - oldIndex;
+            position += skipped;
+            oldIndex += skipped;
+            newIndex += skipped;
+            if (type == INSERT) {
+                addOperation(INSERT, position, 1);
+                position++;
+                newIndex++;
+            } else {
+                addOperation(REMOVE, position, 1);
+                oldIndex++;
+            }
+        }
+        return matches;
+    }
+
+    //Myers贪心算法，trace[d]为第d步结束时各对角线k(-d到d)上到达的最远x，超过MAX_EDIT_DISTANCE步返回null
+    private static int[][] findPath(Object[] oldKeys, Object[] newKeys, int offset, int n, int m) {
+        if (Math.abs(n - m) > MAX_EDIT_DISTANCE) {
+            return null;
+        }
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int[] v = new int[2 * max + 3];
+        int center = max + 1;
+        int[][] trace = new int[max + 1][];
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[center + k - 1] < v[center + k + 1])) {
+                    x = v[center + k + 1];
+                } else {
+                    x = v[center + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && equal(oldKeys[offset + x], newKeys[offset + y])) {
+                    x++;
+                    y++;
+                }
+                v[center + k] = x;
+            }
+            trace[d] = Arrays.copyOfRange(v, center - d, center + d + 1);
+            if (v[center + n - m] >= n && Math.abs(n - m) <= d) {
+                return Arrays.copyOf(trace, d + 1);
+            }
+        }
+        return null;
+    }
+
+    //trace[d]从对角线-d开始保存
+    private static int get(int[] v, int d, int k) {
+        return v[k + d];
+    }
+
+    private static boolean equal(Object key1, Object key2) {
+        return key1 == null ? key2 == null : key1.equals(key2);
+    }
+
+    //与上一个同类型、位置相接的操作合并
+    private void addOperation(int type, int position, int count) {
+        if (operationCount > 0) {
+            int last = (operationCount - 1) * 3;
+            if (operations[last] == type) {
+                int lastPosition = operations[last + 1];
+                int lastCount = operations[last + 2];
+                if ((type == INSERT && lastPosition + lastCount == position) || (type == REMOVE && lastPosition == position)) {
+                    operations[last + 2] += count;
+                    return;
+                }
+            }
+        }
+        int index = operationCount * 3;
+        if (index + 3 > operations.length) {
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        }
+        operations[index] = type;
+        operations[index + 1] = position;
+        operations[index + 2] = count;
+        operationCount++;
+    }
+
+    private void addChangedCell(int row, int column) {
+        int index = changedCellCount * 2;
+        if (index + 2 > changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+        }
+        changedCells[index] = row;
+        changedCells[index + 1] = column;
+        changedCellCount++;
+    }
+
+    public boolean isEmpty() {
+        return operationCount == 0 && changedCellCount == 0;
+    }
+
+    public int getOperationCount() {
+        return operationCount;
+    }
+
+    //INSERT或REMOVE
+    public int getOperationType(int index) {
+        return operations[index * 3];
+    }
+
+    public int getOperationPosition(int index) {
+        return operations[index * 3 + 1];
+    }
+
+    public int getOperationCount(int index) {
+        return operations[index * 3 + 2];
+    }
+
+    //旧数据中每一行在新数据中的行号，被删除的行为-1
+    public int[] getRowMap(int oldRowCount) {
+        int[] rowMap = new int[oldRowCount];
+        int oldRow = 0;
+        int newRow = 0;
+        //操作的位置依次递增，之前的行都已经确定
+        for (int i = 0; i < operationCount; i++) {
+            int position = getOperationPosition(i);
+            while (newRow < position) {
+                rowMap[oldRow++] = newRow++;
+            }
+            if (getOperationType(i) == INSERT) {
+                newRow += getOperationCount(i);
+            } else {
+                for (int j = getOperationCount(i); j > 0; j--) {
+                    rowMap[oldRow++] = -1;
+                }
+            }
+        }
+        while (oldRow < oldRowCount) {
+            rowMap[oldRow++] = newRow++;
+        }
+        return rowMap;
+    }
+
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    public int getChangedRow(int index) {
+        return changedCells[index * 2];
+    }
+
+    public int getChangedColumn(int index) {
+        return changedCells[index * 2 + 1];
+    }
+
+    //以第column列的内容作为key，该列的值需要唯一
+    public static RowKey columnKey(final int column) {
+        return new RowKey() {
+            @Override
+            public Object getKey(TableCellAdapter adapter, int row, StringBuilder buffer) {
+                RowComparators.readCell(adapter, row, column, buffer);
+                return buffer.toString();
+            }
+        };
+    }
+
+    //以整行内容作为key
+    public static RowKey contentKey() {
+        return new RowKey() {
+            @Override
+            public Object getKey(TableCellAdapter adapter, int row, StringBuilder buffer) {
+                buffer.setLength(0);
+                int columnCount = adapter.getColumnCount();
+                for (int column = 0; column < columnCount; column++) {
+                    adapter.getCell(row, column, buffer);
+                    buffer.append('\u0000');
+                }
+                return buffer.toString();
+            }
+        };
+    }
+
+    public interface RowKey {
+
+        //第row行的key，新旧数据中key相同(equals)的行被视为同一行，buffer可用于读取单元格
+        Object getKey(TableCellAdapter adapter, int row, StringBuilder buffer);
+
+    }
+
+}
@@ -0,0 +1,433 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.Arrays;
+
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+/**
+ * 表格的尺寸计算：列宽、每列/每行的偏移量、表格总大小以及坐标所在的行列
+ * 不依赖Android，TableLayout的测量、绘制和点击都委托给它
+ */
+public class TableLayoutEngine {
+
+    //根据所有单元格的内容确定列宽
+    public static final int WIDTH_MODE_AUTO = 0;
+    //只测量部分行确定列宽，见ColumnMeasurer
+    public static final int WIDTH_MODE_SAMPLED = 2;
+
+    public static final int DEFAULT_SAMPLE_ROWS = 50;
+
+    private int columnPadding;
+    //不为0时根据内容计算的列宽不超过该值，单独设置的列宽不受限制
+    private int maxColumnWidth;
+    private int widthMode = WIDTH_MODE_AUTO;
+    private int sampleRows = DEFAULT_SAMPLE_ROWS;
+
+    private TableCellAdapter adapter;
+    private TextMeasurer textMeasurer;
+    private ColumnMeasurer columnMeasurer;
+    private int rowCount;
+    private int columnCount;
+    //每列最宽文字的宽度及其所在行，数据局部变化时只需重新测量受影响的单元格
+    private float[] columnTextWidths = new float[0];
+    private int[] widestRows = new int[0];
+    //单独设置的列宽，-1表示使用测量的列宽，为null时没有单独设置过
+    private int[] columnWidthOverrides;
+    private int[] columnWidths = new int[0];
+    //每列的宽度、每行的高度及偏移量，修改单行/单列后只需O(log n)更新
+    private final OffsetIndex columnIndex = new OffsetIndex(0);
+    private final OffsetIndex rowIndex;
+
+    public TableLayoutEngine(int rowHeight, int columnPadding) {
+        this.rowIndex = new OffsetIndex(rowHeight);
+        this.columnPadding = columnPadding;
+    }
+
+    public int getRowHeight() {
+        return rowIndex.getDefaultSize();
+    }
+
+    //未单独设置高度的行使用的行高
+    public void setRowHeight(int rowHeight) {
+        rowIndex.setDefaultSize(rowHeight);
+    }
+
+    public int getRowHeight(int row) {
+        return row < rowIndex.getCount() ? rowIndex.getSize(row) : rowIndex.getDefaultSize();
+    }
+
+    //单独设置第row行的高度，例如换行显示的文字或分组标题
+    public void setRowHeight(int row, int height) {
+        rowIndex.setSize(row, height);
+    }
+
+    public void clearRowHeight(int row) {
+        rowIndex.clearSize(row);
+    }
+
+    public void clearRowHeights() {
+        rowIndex.clearSizes();
+    }
+
+    //单独设置第column列的宽度(包括左右padding)，不再使用测量的列宽，例如用户拖动调整列宽
+    public void setColumnWidth(int column, int width) {
+        if (columnWidthOverrides == null) {
+            columnWidthOverrides = new int[columnCount];
+            Arrays.fill(columnWidthOverrides, -1);
+        }
+        columnWidthOverrides[column] = width;
+        columnIndex.setSize(column, width);
+    }
+
+    public void clearColumnWidth(int column) {
+        if (!hasColumnWidth(column)) {
+            return;
+        }
+        columnWidthOverrides[column] = -1;
+        columnIndex.setSize(column, getColumnWidth(column));
+    }
+
+    public void clearColumnWidths() {
+        columnWidthOverrides = null;
+        updateColumnOffsets();
+    }
+
+    public boolean hasColumnWidth(int column) {
+        return columnWidthOverrides != null && column < columnWidthOverrides.length && columnWidthOverrides[column] >= 0;
+    }
+
+    public int getColumnPadding() {
+        return columnPadding;
+    }
+
+    public void setColumnPadding(int columnPadding) {
+        this.columnPadding = columnPadding;
+        updateColumnOffsets();
+    }
+
+    public int getMaxColumnWidth() {
+        return maxColumnWidth;
+    }
+
+    //0表示不限制
+    public void setMaxColumnWidth(int maxColumnWidth) {
+        this.maxColumnWidth = maxColumnWidth;
+        updateColumnOffsets();
+    }
+
+    public int getWidthMode() {
+        return widthMode;
+    }
+
+    //在setAdapter()之前调用
+    public void setWidthMode(int widthMode) {
+        this.widthMode = widthMode;
+    }
+
+    public int getSampleRows() {
+        return sampleRows;
+    }
+
+    //在setAdapter()之前调用
+    public void setSampleRows(int sampleRows) {
+        this.sampleRows = sampleRows;
+    }
+
+    public TableCellAdapter getAdapter() {
+        return adapter;
+    }
+
+    //只记录adapter的行列数，列宽为0，需要再调用measure()或setColumnTextWidths()
+    public void setAdapter(TableCellAdapter adapter, TextMeasurer textMeasurer) {
+        this.adapter = adapter;
+        this.textMeasurer = textMeasurer;
+        rowCount = adapter.getRowCount();
+        columnCount = adapter.getColumnCount();
+        columnTextWidths = new float[columnCount];
+        widestRows = new int[columnCount];
+        rowIndex.setCount(rowCount);
+        columnMeasurer = newColumnMeasurer(textMeasurer);
+        updateColumnOffsets();
+    }
+
+    //换成行的顺序或数量不同、但内容相同的adapter(例如排序、筛选后)，保留列宽不重新测量
+    public void swapAdapter(TableCellAdapter adapter) {
+        this.adapter = adapter;
+        rowCount = adapter.getRowCount();
+        rowIndex.setCount(rowCount);
+        columnMeasurer = newColumnMeasurer(textMeasurer);
+        //最宽的单元格所在的行已经无法对应，该单元格变窄时不再缩小列宽
+        Arrays.fill(widestRows, -1);
+    }
+
+    //换成计算diff时的新adapter，按diff调整行偏移量，只测量插入的行和变化的单元格
+    public void applyDiff(TableCellAdapter adapter, TableDiff diff) {
+        //最宽的单元格被删除或变窄的列需要重新测量整列
+        boolean[] remeasure = new boolean[columnCount];
+        int operationCount = diff.getOperationCount();
+        for (int i = 0; i < operationCount; i++) {
+            int position = diff.getOperationPosition(i);
+            int count = diff.getOperationCount(i);
+            if (diff.getOperationType(i) == TableDiff.INSERT) {
+                rowIndex.insert(position, count);
+                for (int column = 0; column < columnCount; column++) {
+                    if (widestRows[column] >= position) {
+                        widestRows[column] += count;
+                    }
+                }
+            } else {
+                rowIndex.remove(position, count);
+                for (int column = 0; column < columnCount; column++) {
+                    if (widestRows[column] >= position + count) {
+                        widestRows[column] -= count;
+                    } else if (widestRows[column] >= position) {
+                        remeasure[column] = true;
+                    }
+                }
+            }
+        }
+        this.adapter = adapter;
+        rowCount = adapter.getRowCount();
+        columnMeasurer = newColumnMeasurer(textMeasurer);
+        int changedCellCount = diff.getChangedCellCount();
+        for (int i = 0; i < changedCellCount; i++) {
+            int row = diff.getChangedRow(i);
+            int column = diff.getChangedColumn(i);
+            if (remeasure[column]) {
+                continue;
+            }
+            float width = columnMeasurer.measureCell(row, column);
+            if (width >= columnTextWidths[column]) {
+                columnTextWidths[column] = width;
+                widestRows[column] = row;
+            } else if (widestRows[column] == row) {
+                remeasure[column] = true;
+            }
+        }
+        for (int column = 0; column < columnCount; column++) {
+            if (remeasure[column]) {
+                columnMeasurer.measureColumn(column, rowCount, columnTextWidths, widestRows);
+                continue;
+            }
+            for (int i = 0; i < operationCount; i++) {
+                if (diff.getOperationType(i) == TableDiff.INSERT) {
+                    int position = diff.getOperationPosition(i);
+                    columnMeasurer.measureRows(column, position, position + diff.getOperationCount(i), columnTextWidths, widestRows);
+                }
+            }
+        }
+        updateColumnOffsets();
+    }
+
+    //ColumnMeasurer不是线程安全的，在其他线程测量时需要单独创建
+    public ColumnMeasurer newColumnMeasurer(TextMeasurer textMeasurer) {
+        return new ColumnMeasurer(adapter, textMeasurer, widthMode == WIDTH_MODE_SAMPLED, sampleRows);
+    }
+
+    public void measure() {
+        for (int i = 0; i < columnCount; i++) {
+            columnMeasurer.measureColumn(i, rowCount, columnTextWidths, widestRows);
+        }
+        updateColumnOffsets();
+    }
+
+    //使用在其他线程中测量的结果
+    public void setColumnTextWidths(float[] textWidths, int[] widestRows) {
+        columnTextWidths = textWidths;
+        this.widestRows = widestRows;
+        updateColumnOffsets();
+    }
+
+    //列宽由外部测量(view模式下由TableColumn测量)
+    public void setColumnWidths(int[] widths, int rowCount) {
+        adapter = null;
+        columnMeasurer = null;
+        this.rowCount = rowCount;
+        columnCount = widths.length;
+        if (columnTextWidths.length != columnCount) {
+            columnTextWidths = new float[columnCount];
+            widestRows = new int[columnCount];
+        }
+        if (rowIndex.getCount() != rowCount) {
+            rowIndex.setCount(rowCount);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            columnTextWidths[i] = widths[i] - columnPadding * 2;
+            widestRows[i] = -1;
+        }
+        updateColumnOffsets();
+    }
+
+    public float measureCell(int row, int column) {
+        return columnMeasurer.measureCell(row, column);
+    }
+
+    //第row行第column列的数据发生变化，返回列宽是否改变
+    public boolean notifyCellChanged(int row, int column) {
+        int oldWidth = getColumnWidth(column);
+        float width = columnMeasurer.measureCell(row, column);
+        if (width >= columnTextWidths[column]) {
+            columnTextWidths[column] = width;
+            widestRows[column] = row;
+        } else if (widestRows[column] == row) {
+            //原来最宽的单元格变窄了，只能重新测量整列
+            columnMeasurer.measureColumn(column, rowCount, columnTextWidths, widestRows);
+        }
+        return onColumnWidthChanged(column, oldWidth);
+    }
+
+    //第column列的数据全部发生变化，返回列宽是否改变
+    public boolean notifyColumnChanged(int column) {
+        int oldWidth = getColumnWidth(column);
+        columnMeasurer.measureColumn(column, rowCount, columnTextWidths, widestRows);
+        return onColumnWidthChanged(column, oldWidth);
+    }
+
+    //从positionStart开始的itemCount行数据发生变化，只测量这些行，返回列宽是否改变
+    public boolean notifyRowRangeChanged(int positionStart, int itemCount) {
+        boolean changed = false;
+        int positionEnd = positionStart + itemCount;
+        for (int i = 0; i < columnCount; i++) {
+            int oldWidth = getColumnWidth(i);
+            if (widestRows[i] >= positionStart && widestRows[i] < positionEnd) {
+                //原来最宽的单元格可能变窄了，只能重新测量整列
+                columnMeasurer.measureColumn(i, rowCount, columnTextWidths, widestRows);
+            } else {
+                columnMeasurer.measureRows(i, positionStart, positionEnd, columnTextWidths, widestRows);
+            }
+            changed |= onColumnWidthChanged(i, oldWidth);
+        }
+        return changed;
+    }
+
+    //在positionStart处插入了itemCount行，只测量新插入的行
+    public void notifyRowRangeInserted(int positionStart, int itemCount) {
+        rowCount = adapter.getRowCount();
+        rowIndex.insert(positionStart, itemCount);
+        for (int i = 0; i < columnCount; i++) {
+            if (widestRows[i] >= positionStart) {
+                widestRows[i] += itemCount;
+            }
+            columnMeasurer.measureRows(i, positionStart, positionStart + itemCount, columnTextWidths, widestRows);
+        }
+        updateColumnOffsets();
+    }
+
+    //从positionStart处删除了itemCount行，只有最宽单元格被删除的列才需要重新测量
+    public void notifyRowRangeRemoved(int positionStart, int itemCount) {
+        rowCount = adapter.getRowCount();
+        rowIndex.remove(positionStart, itemCount);
+        for (int i = 0; i < columnCount; i++) {
+            if (widestRows[i] >= positionStart + itemCount) {
+                widestRows[i] -= itemCount;
+            } else if (widestRows[i] >= positionStart) {
+                columnMeasurer.measureColumn(i, rowCount, columnTextWidths, widestRows);
+            }
+        }
+        updateColumnOffsets();
+    }
+
+    //sampled模式下未被测量过的单元格可能比列宽更宽，返回true时需要调用updateColumnOffsets()
+    public boolean widenColumn(int row, int column) {
+        float width = columnMeasurer.measureCell(row, column);
+        if (width > columnTextWidths[column]) {
+            int oldWidth = getColumnWidth(column);
+            columnTextWidths[column] = width;
+            widestRows[column] = row;
+            //已达到maxColumnWidth的列不再变宽
+            return getColumnWidth(column) != oldWidth;
+        }
+        return false;
+    }
+
+    private boolean onColumnWidthChanged(int column, int oldWidth) {
+        int width = getColumnWidth(column);
+        if (width == oldWidth) {
+            return false;
+        }
+        columnIndex.setSize(column, width);
+        return true;
+    }
+
+    public void updateColumnOffsets() {
+        if (columnWidthOverrides != null && columnWidthOverrides.length != columnCount) {
+            int oldCount = Math.min(columnWidthOverrides.length, columnCount);
+            columnWidthOverrides = Arrays.copyOf(columnWidthOverrides, columnCount);
+            Arrays.fill(columnWidthOverrides, oldCount, columnCount, -1);
+        }
+        if (columnWidths.length != columnCount) {
+            columnWidths = new int[columnCount];
+        }
+        for (int i = 0; i < columnCount; i++) {
+            columnWidths[i] = getColumnWidth(i);
+        }
+        columnIndex.setSizes(columnWidths, columnCount);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getWidth() {
+        return columnIndex.getTotal();
+    }
+
+    public int getHeight() {
+        return rowIndex.getTotal();
+    }
+
+    public int getColumnWidth(int column) {
+        if (hasColumnWidth(column)) {
+            return columnWidthOverrides[column];
+        }
+        int width = (int) (columnPadding * 2 + columnTextWidths[column]);
+        return maxColumnWidth > 0 ? Math.min(width, maxColumnWidth) : width;
+    }
+
+    public float getColumnTextWidth(int column) {
+        return columnTextWidths[column];
+    }
+
+    public int getColumnLeft(int column) {
+        return columnIndex.getOffset(column);
+    }
+
+    public int getColumnRight(int column) {
+        return columnIndex.getOffset(column + 1);
+    }
+
+    public int getRowTop(int row) {
+        return rowIndex.getOffset(row);
+    }
+
+    public int getRowBottom(int row) {
+        return rowIndex.getOffset(row + 1);
+    }
+
+    //返回x所在的列，不在表格内返回-1
+    public int columnAt(float x) {
+        return columnIndex.indexOf(x);
+    }
+
+    //返回y所在的行，不在表格内返回-1
+    public int rowAt(float y) {
+        return rowIndex.indexOf(y);
+    }
+
+    //将(x, y)所在单元格的行列写入outCell[0]、outCell[1]，不在表格内返回false
+    public boolean cellAt(float x, float y, int[] outCell) {
+        int column = columnAt(x);
+        int row = rowAt(y);
+        if (column < 0 || row < 0) {
+            return false;
+        }
+        outCell[0] = row;
+        outCell[1] = column;
+        return true;
+    }
+
+}
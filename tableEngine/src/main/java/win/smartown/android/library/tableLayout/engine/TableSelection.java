@@ -0,0 +1,371 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * 选中的单元格，保存为互不重叠的矩形区域[top, bottom) x [left, right)，与View和数据无关
+ * 整行、整列选中时区域的右边界、下边界为Integer.MAX_VALUE，数据行列数变化后依然有效
+ * isSelected()使用按行分段的索引二分查找，索引在区域变化后的第一次查询时重建
+ */
+public class TableSelection {
+
+    public static final int END = Integer.MAX_VALUE;
+
+    //每个区域依次保存top、left、bottom、right
+    private int[] ranges = new int[16];
+    private int rangeCount;
+    private final ArrayList<Listener> listeners = new ArrayList<>();
+    //所有区域的上下边界排序去重后将行分为若干段，第i段为[bandRows[i], bandRows[i + 1])
+    private int[] bandRows;
+    //第i段中的区域为bandColumns[bandStarts[i]]到bandColumns[bandStarts[i + 1]]，每个为(left << 32) | right，按left排序
+    private int[] bandStarts;
+    private long[] bandColumns;
+    private boolean indexDirty = true;
+
+    public boolean isSelected(int row, int column) {
+        if (rangeCount == 0) {
+            return false;
+        }
+        if (indexDirty) {
+            buildIndex();
+        }
+        int band = Arrays.binarySearch(bandRows, row);
+        if (band < 0) {
+            band = -band - 2;
+        }
+        if (band < 0 || band >= bandRows.length - 1) {
+            return false;
+        }
+        int start = bandStarts[band];
+        //同一段中的区域互不重叠，只需检查left不大于column的最后一个区域
+        int index = Arrays.binarySearch(bandColumns, start, bandStarts[band + 1], ((long) column << 32) | 0xFFFFFFFFL);
+        index = -index - 2;
+        return index >= start && column < (int) bandColumns[index];
+    }
+
+    public boolean isEmpty() {
+        return rangeCount == 0;
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    //将第index个区域写入outRange，依次为top、left、bottom、right
+    public void getRange(int index, int[] outRange) {
+        System.arraycopy(ranges, index * 4, outRange, 0, 4);
+    }
+
+    public void selectCell(int row, int column) {
+        select(row, column, row + 1, column + 1);
+    }
+
+    public void selectRow(int row) {
+        select(row, 0, row + 1, END);
+    }
+
+    public void selectColumn(int column) {
+        select(0, column, END, column + 1);
+    }
+
+    public void selectAll() {
+        rangeCount = 0;
+        indexDirty = true;
+        addRange(0, 0, END, END);
+        dispatchSelectionChanged(0, 0, END, END);
+    }
+
+    public void select(int top, int left, int bottom, int right) {
+        if (top >= bottom || left >= right) {
+            return;
+        }
+        subtract(top, left, bottom, right);
+        addMerged(top, left, bottom, right);
+        dispatchSelectionChanged(top, left, bottom, right);
+    }
+
+    public void deselect(int top, int left, int bottom, int right) {
+        if (top >= bottom || left >= right) {
+            return;
+        }
+        subtract(top, left, bottom, right);
+        dispatchSelectionChanged(top, left, bottom, right);
+    }
+
+    public void toggleCell(int row, int column) {
+        if (isSelected(row, column)) {
+            deselect(row, column, row + 1, column + 1);
+        } else {
+            selectCell(row, column);
+        }
+    }
+
+    public void clear() {
+        if (rangeCount == 0) {
+            return;
+        }
+        int top = END;
+        int left = END;
+        int bottom = 0;
+        int right = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            int index = i * 4;
+            top = Math.min(top, ranges[index]);
+            left = Math.min(left, ranges[index + 1]);
+            bottom = Math.max(bottom, ranges[index + 2]);
+            right = Math.max(right, ranges[index + 3]);
+        }
+        rangeCount = 0;
+        indexDirty = true;
+        dispatchSelectionChanged(top, left, bottom, right);
+    }
+
+    //在position处插入了count行，之后的区域下移，跨过position的区域被拆开，新插入的行不选中(选中到最后一行的区域除外)
+    public void onRowsInserted(int position, int count) {
+        int oldCount = rangeCount;
+        int[] old = ranges;
+        ranges = new int[old.length];
+        rangeCount = 0;
+        indexDirty = true;
+        for (int i = 0; i < oldCount; i++) {
+            int index = i * 4;
+            int top = old[index];
+            int left = old[index + 1];
+            int bottom = old[index + 2];
+            int right = old[index + 3];
+            if (top >= position) {
+                addRange(top + count, left, shiftRow(bottom, count), right);
+            } else if (bottom <= position || bottom == END) {
+                addRange(top, left, bottom, right);
+            } else {
+                addRange(top, left, position, right);
+                addRange(position + count, left, shiftRow(bottom, count), right);
+            }
+        }
+        if (oldCount != 0) {
+            dispatchSelectionChanged(position, 0, END, END);
+        }
+    }
+
+    //从position处删除了count行，之后的区域上移
+    public void onRowsRemoved(int position, int count) {
+        int oldCount = rangeCount;
+        int[] old = ranges;
+        ranges = new int[old.length];
+        rangeCount = 0;
+        indexDirty = true;
+        for (int i = 0; i < oldCount; i++) {
+            int index = i * 4;
+            int top = removeRows(old[index], position, count);
+            int bottom = removeRows(old[index + 2], position, count);
+            if (top < bottom) {
+                addRange(top, old[index + 1], bottom, old[index + 3]);
+            }
+        }
+        if (oldCount != 0) {
+            dispatchSelectionChanged(position, 0, END, END);
+        }
+    }
+
+    /**
+     * 行的顺序变化(排序、筛选)后调用，选中的行跟随数据移动到新的位置
+     *
+     * @param rowMap rowMap[row]为原来第row行的新位置，-1表示不再显示；超出rowMap范围的行不再选中，
+     *               从第0行到最后一行的区域(整列)不变
+     */
+    public void onRowsMoved(int[] rowMap) {
+        int oldCount = rangeCount;
+        if (oldCount == 0) {
+            return;
+        }
+        int[] old = ranges;
+        ranges = new int[old.length];
+        rangeCount = 0;
+        indexDirty = true;
+        int[] moved = new int[16];
+        for (int i = 0; i < oldCount; i++) {
+            int index = i * 4;
+            int top = old[index];
+            int left = old[index + 1];
+            int bottom = old[index + 2];
+            int right = old[index + 3];
+            if (top == 0 && bottom == END) {
+                addRange(top, left, bottom, right);
+                continue;
+            }
+            int end = Math.min(bottom, rowMap.length);
+            int count = 0;
+            for (int row = top; row < end; row++) {
+                if (rowMap[row] < 0) {
+                    continue;
+                }
+                if (count == moved.length) {
+                    moved = Arrays.copyOf(moved, count * 2);
+                }
+                moved[count++] = rowMap[row];
+            }
+            //移动后的行排序，连续的行合并为一个区域
+            Arrays.sort(moved, 0, count);
+            int start = 0;
+            for (int j = 1; j <= count; j++) {
+                if (j == count || moved[j] != moved[j - 1] + 1) {
+                    addRange(moved[start], left, moved[j - 1] + 1, right);
+                    start = j;
+                }
+            }
+        }
+        dispatchSelectionChanged(0, 0, END, END);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void dispatchSelectionChanged(int top, int left, int bottom, int right) {
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onSelectionChanged(this, top, left, bottom, right);
+        }
+    }
+
+    private static int shiftRow(int row, int count) {
+        return row == END ? END : row + count;
+    }
+
+    private static int removeRows(int row, int position, int count) {
+        if (row == END || row < position) {
+            return row;
+        }
+        return row < position + count ? position : row - count;
+    }
+
+    //从已有区域中去掉与[top, bottom) x [left, right)重叠的部分，每个区域最多被拆成上下左右4块
+    private void subtract(int top, int left, int bottom, int right) {
+        int oldCount = rangeCount;
+        int[] old = ranges;
+        ranges = new int[old.length];
+        rangeCount = 0;
+        indexDirty = true;
+        for (int i = 0; i < oldCount; i++) {
+            int index = i * 4;
+            int t = old[index];
+            int l = old[index + 1];
+            int b = old[index + 2];
+            int r = old[index + 3];
+            if (t >= bottom || b <= top || l >= right || r <= left) {
+                addRange(t, l, b, r);
+                continue;
+            }
+            if (t < top) {
+                addRange(t, l, top, r);
+            }
+            if (bottom < b) {
+                addRange(bottom, l, b, r);
+            }
+            int middleTop = Math.max(t, top);
+            int middleBottom = Math.min(b, bottom);
+            if (l < left) {
+                addRange(middleTop, l, middleBottom, left);
+            }
+            if (right < r) {
+                addRange(middleTop, right, middleBottom, r);
+            }
+        }
+    }
+
+    //与边完全相接的区域合并，避免逐个选中单元格时区域数量不断增长
+    private void addMerged(int top, int left, int bottom, int right) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < rangeCount; i++) {
+                int index = i * 4;
+                int t = ranges[index];
+                int l = ranges[index + 1];
+                int b = ranges[index + 2];
+                int r = ranges[index + 3];
+                if (t == top && b == bottom && (r == left || l == right)) {
+                    left = Math.min(l, left);
+                    right = Math.max(r, right);
+                } else if (l == left && r == right && (b == top || t == bottom)) {
+                    top = Math.min(t, top);
+                    bottom = Math.max(b, bottom);
+                } else {
+                    continue;
+                }
+                removeRange(i);
+                merged = true;
+                break;
+            }
+        }
+        addRange(top, left, bottom, right);
+    }
+
+    private void buildIndex() {
+        int[] rows = new int[rangeCount * 2];
+        for (int i = 0; i < rangeCount; i++) {
+            rows[i * 2] = ranges[i * 4];
+            rows[i * 2 + 1] = ranges[i * 4 + 2];
+        }
+        Arrays.sort(rows);
+        int bandCount = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (i == 0 || rows[i] != rows[i - 1]) {
+                rows[bandCount++] = rows[i];
+            }
+        }
+        bandRows = Arrays.copyOf(rows, bandCount);
+        bandStarts = new int[bandCount];
+        long[] columns = new long[rangeCount];
+        int count = 0;
+        for (int band = 0; band < bandCount - 1; band++) {
+            bandStarts[band] = count;
+            int row = bandRows[band];
+            for (int i = 0; i < rangeCount; i++) {
+                int index = i * 4;
+                if (ranges[index] <= row && ranges[index + 2] > row) {
+                    if (count == columns.length) {
+                        columns = Arrays.copyOf(columns, count * 2);
+                    }
+                    columns[count++] = ((long) ranges[index + 1] << 32) | ranges[index + 3];
+                }
+            }
+            Arrays.sort(columns, bandStarts[band], count);
+        }
+        bandStarts[bandCount - 1] = count;
+        bandColumns = columns;
+        indexDirty = false;
+    }
+
+    private void addRange(int top, int left, int bottom, int right) {
+        int index = rangeCount * 4;
+        if (index + 4 > ranges.length) {
+            int[] grown = new int[ranges.length * 2];
+            System.arraycopy(ranges, 0, grown, 0, index);
+            ranges = grown;
+        }
+        ranges[index] = top;
+        ranges[index + 1] = left;
+        ranges[index + 2] = bottom;
+        ranges[index + 3] = right;
+        rangeCount++;
+        indexDirty = true;
+    }
+
+    //用最后一个区域填补被删除的位置
+    private void removeRange(int i) {
+        rangeCount--;
+        indexDirty = true;
+        System.arraycopy(ranges, rangeCount * 4, ranges, i * 4, 4);
+    }
+
+    public interface Listener {
+        //[top, bottom) x [left, right)范围内的选中状态可能发生了变化
+        void onSelectionChanged(TableSelection selection, int top, int left, int bottom, int right);
+    }
+
+}
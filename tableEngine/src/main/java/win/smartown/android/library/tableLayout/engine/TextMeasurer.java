@@ -0,0 +1,10 @@
+package win.smartown.android.library.tableLayout.engine;
+
+/**
+ * 测量文字宽度(像素)，Android中由Paint实现，JVM上可以使用任意实现
+ */
+public interface TextMeasurer {
+
+    float measureText(CharSequence text, int start, int end);
+
+}
@@ -0,0 +1,65 @@
+package win.smartown.android.library.tableLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试用的adapter，每行为一个String数组，第0行为标题
+ */
+public class ArrayTableCellAdapter implements MutableTableCellAdapter {
+
+    private final int columnCount;
+    private final List<String[]> rows = new ArrayList<>();
+
+    public ArrayTableCellAdapter(String[]... rows) {
+        columnCount = rows.length == 0 ? 0 : rows[0].length;
+        this.rows.addAll(Arrays.asList(rows));
+    }
+
+    //第0列为行号，第1列为value
+    public static ArrayTableCellAdapter numbered(int... values) {
+        String[][] rows = new String[values.length + 1][];
+        rows[0] = new String[]{"id", "value"};
+        for (int i = 0; i < values.length; i++) {
+            rows[i + 1] = new String[]{String.valueOf(i + 1), String.valueOf(values[i])};
+        }
+        return new ArrayTableCellAdapter(rows);
+    }
+
+    public void insertRows(int position, String[]... inserted) {
+        rows.addAll(position, Arrays.asList(inserted));
+    }
+
+    public void removeRows(int position, int count) {
+        rows.subList(position, position + count).clear();
+    }
+
+    public String getText(int row, int column) {
+        return rows.get(row)[column];
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public void getCell(int row, int column, StringBuilder out) {
+        String[] cells = rows.get(row);
+        if (column < cells.length && cells[column] != null) {
+            out.append(cells[column]);
+        }
+    }
+
+    @Override
+    public void setCell(int row, int column, CharSequence value) {
+        rows.get(row)[column] = value.toString();
+    }
+
+}
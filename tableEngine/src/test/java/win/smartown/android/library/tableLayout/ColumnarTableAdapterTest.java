@@ -0,0 +1,123 @@
+package win.smartown.android.library.tableLayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ColumnarTableAdapterTest {
+
+    private static String cell(TableCellAdapter adapter, int row, int column) {
+        StringBuilder out = new StringBuilder();
+        adapter.getCell(row, column, out);
+        return out.toString();
+    }
+
+    @Test
+    public void titlesAreHeaderRow() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(2);
+        adapter.addIntColumn("id");
+        adapter.addStringColumn("name");
+        assertEquals(3, adapter.getRowCount());
+        assertEquals(2, adapter.getColumnCount());
+        assertEquals("id", cell(adapter, 0, 0));
+        assertEquals("name", cell(adapter, 0, 1));
+        adapter.setCell(0, 1, "title");
+        assertEquals("title", adapter.getColumn(1).getTitle());
+        assertTrue(Double.isNaN(adapter.getNumber(0, 0)));
+    }
+
+    @Test
+    public void numberColumnsFormatAndParse() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(1);
+        ColumnarTableAdapter.IntColumn ints = adapter.addIntColumn("int");
+        ColumnarTableAdapter.LongColumn longs = adapter.addLongColumn("long");
+        ints.set(0, -42);
+        longs.set(0, Long.MAX_VALUE);
+        assertEquals("-42", cell(adapter, 1, 0));
+        assertEquals(String.valueOf(Long.MAX_VALUE), cell(adapter, 1, 1));
+        adapter.setCell(1, 0, " 7 ");
+        assertEquals(7, ints.get(0));
+        assertEquals(7, adapter.getNumber(1, 0), 0);
+        assertTrue(adapter.isNumeric(0));
+        try {
+            adapter.setCell(1, 0, "x");
+            fail();
+        } catch (NumberFormatException e) {
+            assertEquals(7, ints.get(0));
+        }
+    }
+
+    @Test
+    public void doubleColumnRoundsToDecimals() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(1);
+        ColumnarTableAdapter.DoubleColumn column = adapter.addDoubleColumn("price", 2);
+        double[] values = {3.14159, 2.5, -0.05, -0.001, 0.004, 1e20, Double.NaN};
+        String[] expected = {"3.14", "2.50", "-0.05", "0.00", "0.00", "1.0E20", ""};
+        for (int i = 0; i < values.length; i++) {
+            column.set(0, values[i]);
+            assertEquals(expected[i], cell(adapter, 1, 0));
+        }
+        adapter.setCell(1, 0, " ");
+        assertTrue(Double.isNaN(column.get(0)));
+        ColumnarTableAdapter.DoubleColumn raw = adapter.addDoubleColumn("raw", -1);
+        raw.set(0, 0.1);
+        assertEquals("0.1", cell(adapter, 1, 1));
+    }
+
+    @Test
+    public void doubleColumnSortsNaNLast() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(3);
+        ColumnarTableAdapter.DoubleColumn column = adapter.addDoubleColumn("value", 1);
+        column.set(0, Double.NaN);
+        column.set(1, 2);
+        column.set(2, -1);
+        assertTrue(column.compare(0, 1) > 0);
+        assertTrue(column.compare(2, 1) < 0);
+        assertEquals(0, column.compare(0, 0));
+    }
+
+    @Test
+    public void stringColumnSharesDictionary() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter(4);
+        ColumnarTableAdapter.StringColumn column = adapter.addStringColumn("city");
+        assertFalse(adapter.isNumeric(0));
+        adapter.setCell(1, 0, "b");
+        adapter.setCell(2, 0, "a");
+        adapter.setCell(3, 0, new StringBuilder("b"));
+        assertEquals(2, column.getDictionarySize());
+        assertEquals("b", cell(adapter, 3, 0));
+        //未设置的行为null，显示为空，排序时按空文字比较
+        assertNull(column.get(3));
+        assertEquals("", cell(adapter, 4, 0));
+        assertTrue(column.compare(1, 0) < 0);
+        assertTrue(column.compare(3, 0) < 0);
+        assertEquals(0, column.compare(0, 2));
+    }
+
+    @Test
+    public void removedRowsComeBackEmpty() {
+        ColumnarTableAdapter adapter = new ColumnarTableAdapter();
+        ColumnarTableAdapter.IntColumn ints = adapter.addIntColumn("int");
+        ColumnarTableAdapter.StringColumn strings = adapter.addStringColumn("text");
+        for (int i = 0; i < 10; i++) {
+            int index = adapter.addDataRow();
+            ints.set(index, i + 1);
+            strings.set(index, "row" + i);
+        }
+        assertEquals(11, adapter.getRowCount());
+        adapter.setDataRowCount(5);
+        adapter.setDataRowCount(8);
+        assertEquals("5", cell(adapter, 5, 0));
+        assertEquals("0", cell(adapter, 6, 0));
+        assertEquals("", cell(adapter, 8, 1));
+        //之后添加的列容量与已有的行数一致
+        ColumnarTableAdapter.LongColumn longs = adapter.addLongColumn("long");
+        longs.set(7, 1);
+        assertEquals("1", cell(adapter, 8, 2));
+    }
+
+}
@@ -0,0 +1,234 @@
+package win.smartown.android.library.tableLayout;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import win.smartown.android.library.tableLayout.engine.RowComparator;
+import win.smartown.android.library.tableLayout.engine.RowComparators;
+import win.smartown.android.library.tableLayout.engine.RowSorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CsvTableAdapterTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final List<File> files = new ArrayList<>();
+    private final List<CsvTableAdapter> adapters = new ArrayList<>();
+
+    @After
+    public void tearDown() throws IOException {
+        for (CsvTableAdapter adapter : adapters) {
+            adapter.close();
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private CsvTableAdapter open(String suffix, byte[] content) throws IOException {
+        File file = File.createTempFile("table", suffix);
+        files.add(file);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        CsvTableAdapter adapter = new CsvTableAdapter(file);
+        adapters.add(adapter);
+        return adapter;
+    }
+
+    private CsvTableAdapter open(String content) throws IOException {
+        return open(".csv", content.getBytes("UTF-8"));
+    }
+
+    private static String cell(TableCellAdapter adapter, int row, int column) {
+        StringBuilder out = new StringBuilder();
+        adapter.getCell(row, column, out);
+        return out.toString();
+    }
+
+    @Test
+    public void quotedFields() throws IOException {
+        CsvTableAdapter adapter = open("a,b,c\n\"x,1\",\"say \"\"hi\"\"\",\"line1\nline2\"\nplain,a\"b,\n");
+        assertEquals(3, adapter.indexAll());
+        assertEquals(3, adapter.getColumnCount());
+        assertEquals("x,1", cell(adapter, 1, 0));
+        assertEquals("say \"hi\"", cell(adapter, 1, 1));
+        assertEquals("line1\nline2", cell(adapter, 1, 2));
+        assertEquals("a\"b", cell(adapter, 2, 1));
+        assertEquals("", cell(adapter, 2, 2));
+    }
+
+    //字段中间的引号不开始引用，不会把之后的换行当作字段内容
+    @Test
+    public void quoteInsideUnquotedField() throws IOException {
+        CsvTableAdapter adapter = open("name,size\n12\" pipe,3\nvalve,4\n\"a\"b\",5\n");
+        assertEquals(4, adapter.indexAll());
+        assertEquals("12\" pipe", cell(adapter, 1, 0));
+        assertEquals("3", cell(adapter, 1, 1));
+        assertEquals("valve", cell(adapter, 2, 0));
+        assertEquals("ab\"", cell(adapter, 3, 0));
+        assertEquals("5", cell(adapter, 3, 1));
+    }
+
+    @Test
+    public void crlfAndMissingFields() throws IOException {
+        CsvTableAdapter adapter = open("a,b\r\n1\r\n2,3\r\n");
+        assertEquals(3, adapter.indexAll());
+        assertEquals("1", cell(adapter, 1, 0));
+        assertEquals("", cell(adapter, 1, 1));
+        assertEquals("3", cell(adapter, 2, 1));
+    }
+
+    @Test
+    public void lastRowWithoutNewline() throws IOException {
+        CsvTableAdapter adapter = open("a\n1\n2");
+        assertEquals(3, adapter.indexAll());
+        assertEquals("2", cell(adapter, 2, 0));
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws IOException {
+        byte[] content = "名称,值\n一,1\n".getBytes("UTF-8");
+        byte[] withBom = new byte[content.length + 3];
+        withBom[0] = (byte) 0xEF;
+        withBom[1] = (byte) 0xBB;
+        withBom[2] = (byte) 0xBF;
+        System.arraycopy(content, 0, withBom, 3, content.length);
+        CsvTableAdapter adapter = open(".csv", withBom);
+        assertEquals(2, adapter.indexAll());
+        assertEquals(2, adapter.getColumnCount());
+        assertEquals("名称", cell(adapter, 0, 0));
+        assertEquals("一", cell(adapter, 1, 0));
+    }
+
+    @Test
+    public void multiByteCharacters() throws IOException {
+        String emoji = new String(Character.toChars(0x1F600));
+        CsvTableAdapter adapter = open("a,b\né,中文" + emoji + "\n");
+        adapter.indexAll();
+        assertEquals("é", cell(adapter, 1, 0));
+        assertEquals("中文" + emoji, cell(adapter, 1, 1));
+    }
+
+    @Test
+    public void tabSeparatedIgnoresQuotes() throws IOException {
+        CsvTableAdapter adapter = open(".tsv", "a\tb\n\"x\ty\n".getBytes("UTF-8"));
+        assertEquals(2, adapter.indexAll());
+        assertEquals("\"x", cell(adapter, 1, 0));
+        assertEquals("y", cell(adapter, 1, 1));
+    }
+
+    //行数超过INDEX_STRIDE的多倍，随机、倒序读取时需要从记录的位置向后查找，缓存也会被淘汰
+    @Test
+    public void rowsAcrossIndexBlocks() throws IOException {
+        StringBuilder content = new StringBuilder("id,text\n");
+        int rowCount = CsvTableAdapter.INDEX_STRIDE * 10 + 3;
+        for (int i = 1; i < rowCount; i++) {
+            content.append(i).append(",\"row\n").append(i).append("\"\n");
+        }
+        CsvTableAdapter adapter = open(content.toString());
+        adapter.setCacheSize(4);
+        assertEquals(rowCount, adapter.indexAll());
+        for (int row = rowCount - 1; row > 0; row -= 7) {
+            assertEquals(String.valueOf(row), cell(adapter, row, 0));
+            assertEquals("row\n" + row, cell(adapter, row, 1));
+        }
+        for (int row = 1; row < rowCount; row++) {
+            assertEquals(String.valueOf(row), cell(adapter, row, 0));
+        }
+    }
+
+    @Test
+    public void concurrentReads() throws Exception {
+        StringBuilder content = new StringBuilder("id,value\n");
+        final int rowCount = 20000;
+        for (int i = 1; i < rowCount; i++) {
+            content.append(i).append(',').append((i * 7919) % 1000).append('\n');
+        }
+        final CsvTableAdapter adapter = open(content.toString());
+        adapter.setCacheSize(64);
+        adapter.indexAll();
+        final AtomicInteger errors = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    StringBuilder out = new StringBuilder();
+                    for (int i = 0; i < 20000; i++) {
+                        //随机读取与顺序读取交替
+                        int row = i % 2 == 0 ? 1 + random.nextInt(rowCount - 1) : 1 + i % (rowCount - 1);
+                        out.setLength(0);
+                        adapter.getCell(row, 1, out);
+                        if (!out.toString().equals(String.valueOf((row * 7919) % 1000))) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, errors.get());
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            RowComparator comparator = RowComparators.number(1);
+            assertArrayEquals(RowSorter.sortRows(adapter, comparator, null, null, 1),
+                    RowSorter.sortRows(adapter, comparator, null, executor, 4));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void indexingPublishesRows() throws IOException {
+        CsvTableAdapter adapter = open("a\n1\n2\n3\n");
+        final int[] published = new int[2];
+        final boolean[] finished = new boolean[1];
+        adapter.startIndexing(DIRECT, DIRECT, new CsvTableAdapter.Listener() {
+            @Override
+            public void onRowsIndexed(CsvTableAdapter adapter, int positionStart, int itemCount) {
+                assertEquals(published[1], positionStart);
+                published[0]++;
+                published[1] += itemCount;
+            }
+
+            @Override
+            public void onIndexFinished(CsvTableAdapter adapter) {
+                finished[0] = true;
+            }
+        });
+        assertEquals(4, published[1]);
+        assertEquals(4, adapter.getRowCount());
+        assertFalse(adapter.isIndexing());
+        assertEquals(true, finished[0]);
+    }
+
+}
@@ -0,0 +1,119 @@
+package win.smartown.android.library.tableLayout;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
+import win.smartown.android.library.tableLayout.engine.TextMeasurer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PagedTableAdapterTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    //每个单元格的内容为行号，记录读取过的页的起始行
+    private static class Source implements PagedTableAdapter.DataSource {
+
+        final List<Integer> loads = new ArrayList<>();
+
+        @Override
+        public int getRowCount() {
+            return 1000;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 1;
+        }
+
+        @Override
+        public void loadRows(int start, int count, String[] cells) {
+            loads.add(start);
+            for (int i = 0; i < count; i++) {
+                cells[i] = String.valueOf(start + i);
+            }
+        }
+    }
+
+    @Test
+    public void getCellDoesNotLoad() {
+        Source source = new Source();
+        PagedTableAdapter adapter = new PagedTableAdapter(source, 10, DIRECT, DIRECT);
+        adapter.setPlaceholder("...");
+        StringBuilder out = new StringBuilder();
+        adapter.getCell(55, 0, out);
+        assertEquals("...", out.toString());
+        assertTrue(source.loads.isEmpty());
+    }
+
+    @Test
+    public void visibleRowsLoadWithPrefetch() {
+        Source source = new Source();
+        PagedTableAdapter adapter = new PagedTableAdapter(source, 10, DIRECT, DIRECT);
+        adapter.setPrefetchPages(1);
+        adapter.onVisibleRowsChanged(0, 15);
+        assertEquals("[0, 10, 20]", source.loads.toString());
+        StringBuilder out = new StringBuilder();
+        adapter.getCell(12, 0, out);
+        assertEquals("12", out.toString());
+        assertFalse(adapter.isRowLoaded(30));
+    }
+
+    @Test
+    public void sortedRowsLoadSourcePages() {
+        Source source = new Source();
+        PagedTableAdapter adapter = new PagedTableAdapter(source, 10, DIRECT, DIRECT);
+        adapter.setPrefetchPages(1);
+        SortedTableAdapter sorted = new SortedTableAdapter(adapter);
+        //倒序显示
+        int[] rows = new int[1000];
+        int[] inverse = new int[1000];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i == 0 ? 0 : 1000 - i;
+            inverse[rows[i]] = i;
+        }
+        sorted.setRows(rows, inverse);
+        adapter.onVisibleRowsChanged(sorted, 1, 5);
+        //可见的行为999~995，预读之后的一页
+        assertEquals("[990, 980]", source.loads.toString());
+        assertTrue(adapter.isRowLoaded(995));
+        assertFalse(adapter.isRowLoaded(0));
+        //显示的第1行为数据源的第999行
+        assertTrue(sorted.isRowAvailable(1));
+        assertFalse(sorted.isRowAvailable(999));
+    }
+
+    @Test
+    public void measureSkipsUnloadedRows() {
+        Source source = new Source();
+        PagedTableAdapter adapter = new PagedTableAdapter(source, 10, DIRECT, DIRECT);
+        adapter.setPlaceholder("a long placeholder");
+        adapter.setPrefetchPages(0);
+        TableLayoutEngine engine = new TableLayoutEngine(20, 0);
+        engine.setAdapter(adapter, new TextMeasurer() {
+            @Override
+            public float measureText(CharSequence text, int start, int end) {
+                return (end - start) * 10;
+            }
+        });
+        engine.measure();
+        assertEquals(0, engine.getColumnWidth(0));
+        assertTrue(source.loads.isEmpty());
+        adapter.onVisibleRowsChanged(0, 5);
+        engine.notifyRowRangeChanged(0, 10);
+        assertEquals(10, engine.getColumnWidth(0));
+        assertEquals("[0]", source.loads.toString());
+    }
+
+}
@@ -0,0 +1,96 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CellStyleCacheTest {
+
+    @Test
+    public void putAndGet() {
+        CellStyleCache cache = new CellStyleCache();
+        assertEquals(CellStyleCache.NOT_CACHED, cache.get(1, 2));
+        cache.put(1, 2, 7);
+        cache.put(2, 1, 8);
+        cache.put(1, 2, 9);
+        assertEquals(9, cache.get(1, 2));
+        assertEquals(8, cache.get(2, 1));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void clearsWhenFull() {
+        CellStyleCache cache = new CellStyleCache(4);
+        for (int i = 0; i < 4; i++) {
+            cache.put(i, 0, i);
+        }
+        cache.put(4, 0, 4);
+        assertEquals(1, cache.size());
+        assertEquals(CellStyleCache.NOT_CACHED, cache.get(0, 0));
+        assertEquals(4, cache.get(4, 0));
+    }
+
+    @Test
+    public void invalidateRemovesOnlyRange() {
+        CellStyleCache cache = new CellStyleCache();
+        for (int row = 0; row < 10; row++) {
+            for (int column = 0; column < 10; column++) {
+                cache.put(row, column, row * 10 + column);
+            }
+        }
+        cache.invalidate(2, 3, 5, 6);
+        assertEquals(100 - 9, cache.size());
+        for (int row = 0; row < 10; row++) {
+            for (int column = 0; column < 10; column++) {
+                boolean inRange = row >= 2 && row < 5 && column >= 3 && column < 6;
+                assertEquals(inRange ? CellStyleCache.NOT_CACHED : row * 10 + column, cache.get(row, column));
+            }
+        }
+    }
+
+    //删除后同一探测序列中的元素前移，随机操作后与HashMap的结果相同
+    @Test
+    public void matchesHashMapAfterRandomInvalidation() {
+        Random random = new Random(1);
+        CellStyleCache cache = new CellStyleCache(256);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int row = random.nextInt(40);
+            int column = random.nextInt(8);
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                int fromRow = random.nextInt(40);
+                int fromColumn = random.nextInt(8);
+                int toRow = fromRow + random.nextInt(10);
+                int toColumn = fromColumn + random.nextInt(4);
+                cache.invalidate(fromRow, fromColumn, toRow, toColumn);
+                for (int r = fromRow; r < toRow; r++) {
+                    for (int c = fromColumn; c < toColumn; c++) {
+                        expected.remove(((long) r << 32) | c);
+                    }
+                }
+            } else if (operation == 1) {
+                cache.invalidateCell(row, column);
+                expected.remove(((long) row << 32) | column);
+            } else {
+                if (expected.size() >= 256) {
+                    expected.clear();
+                }
+                cache.put(row, column, i);
+                expected.put(((long) row << 32) | column, i);
+            }
+            assertEquals(expected.size(), cache.size());
+        }
+        for (int row = 0; row < 40; row++) {
+            for (int column = 0; column < 8; column++) {
+                Integer value = expected.get(((long) row << 32) | column);
+                assertEquals(value == null ? CellStyleCache.NOT_CACHED : value, cache.get(row, column));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffsetIndexTest {
+
+    @Test
+    public void defaultSizesMultiply() {
+        OffsetIndex index = new OffsetIndex(10);
+        index.setCount(5);
+        assertEquals(50, index.getTotal());
+        assertEquals(30, index.getOffset(3));
+        assertEquals(2, index.indexOf(25));
+        assertEquals(-1, index.indexOf(50));
+        assertEquals(-1, index.indexOf(-1));
+    }
+
+    @Test
+    public void setSizeUpdatesPrefixSums() {
+        OffsetIndex index = new OffsetIndex(10);
+        index.setCount(100);
+        index.setSize(3, 25);
+        index.setSize(50, 0);
+        index.setSize(99, 1);
+        int[] sizes = new int[100];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = index.getSize(i);
+        }
+        assertPrefixSums(index, sizes);
+        assertTrue(index.hasSize(3));
+        index.clearSize(3);
+        assertFalse(index.hasSize(3));
+        sizes[3] = 10;
+        assertPrefixSums(index, sizes);
+    }
+
+    @Test
+    public void indexOfSkipsEmptySizes() {
+        OffsetIndex index = new OffsetIndex(10);
+        index.setCount(4);
+        index.setSize(1, 0);
+        index.setSize(2, 0);
+        assertEquals(0, index.indexOf(9));
+        assertEquals(3, index.indexOf(10));
+    }
+
+    @Test
+    public void insertAndRemoveKeepSizes() {
+        OffsetIndex index = new OffsetIndex(10);
+        index.setCount(6);
+        index.setSize(2, 30);
+        index.setSize(4, 50);
+        index.insert(3, 2);
+        assertPrefixSums(index, new int[]{10, 10, 30, 10, 10, 10, 50, 10});
+        index.remove(1, 3);
+        assertPrefixSums(index, new int[]{10, 10, 10, 50, 10});
+        index.setCount(7);
+        assertPrefixSums(index, new int[]{10, 10, 10, 50, 10, 10, 10});
+        index.setDefaultSize(5);
+        assertPrefixSums(index, new int[]{5, 5, 5, 50, 5, 5, 5});
+    }
+
+    private static void assertPrefixSums(OffsetIndex index, int[] sizes) {
+        assertEquals(sizes.length, index.getCount());
+        int offset = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals(sizes[i], index.getSize(i));
+            assertEquals(offset, index.getOffset(i));
+            for (int y = offset; y < offset + sizes[i]; y++) {
+                assertEquals(i, index.indexOf(y));
+            }
+            offset += sizes[i];
+        }
+        assertEquals(offset, index.getOffset(sizes.length));
+        assertEquals(offset, index.getTotal());
+    }
+
+}
@@ -0,0 +1,53 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowComparatorsTest {
+
+    @Test
+    public void parseNumberMatchesParseDouble() {
+        String[] values = {"19.99", "0.07", "-0.07", "+1.5", "0", "-0", "123456789012345678", "1.7976931348623157",
+                "9007199254740993.5", "0.000000000000000001", "1e3", "12.", ".5", "3.14159265358979"};
+        for (String value : values) {
+            assertEquals(value, Double.parseDouble(value), RowComparators.parseNumber(value), 0);
+        }
+        Random random = new Random(3);
+        for (int i = 0; i < 100000; i++) {
+            int decimals = 1 + random.nextInt(4);
+            StringBuilder text = new StringBuilder();
+            text.append(random.nextInt(100000)).append('.');
+            for (int j = 0; j < decimals; j++) {
+                text.append(random.nextInt(10));
+            }
+            String value = text.toString();
+            assertEquals(value, Double.parseDouble(value), RowComparators.parseNumber(value), 0);
+        }
+    }
+
+    @Test
+    public void parseNumberRejectsText() {
+        assertTrue(Double.isNaN(RowComparators.parseNumber("")));
+        assertTrue(Double.isNaN(RowComparators.parseNumber("-")));
+        assertTrue(Double.isNaN(RowComparators.parseNumber(".")));
+        assertTrue(Double.isNaN(RowComparators.parseNumber("12\" pipe")));
+    }
+
+    @Test
+    public void numberRangeIncludesBoundary() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(new String[][]{{"a"}, {"19.99"}, {"0.07"}, {"20"}});
+        RowFilter filter = RowFilters.numberRange(0, 0.07, 19.99);
+        StringBuilder buffer = new StringBuilder();
+        assertTrue(filter.accept(adapter, 1, buffer));
+        assertTrue(filter.accept(adapter, 2, buffer));
+        assertFalse(filter.accept(adapter, 3, buffer));
+    }
+
+}
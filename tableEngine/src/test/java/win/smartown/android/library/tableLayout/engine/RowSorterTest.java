@@ -0,0 +1,119 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+import win.smartown.android.library.tableLayout.TableCellAdapter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowSorterTest {
+
+    @Test
+    public void headerStaysFirst() {
+        ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(3, 1, 2);
+        int[] rows = RowSorter.sortRows(adapter, RowComparators.number(1), null, null, 1);
+        assertArrayEquals(new int[]{0, 2, 3, 1}, rows);
+        rows = RowSorter.sortRows(adapter, RowComparators.reverse(RowComparators.number(1)), null, null, 1);
+        assertArrayEquals(new int[]{0, 1, 3, 2}, rows);
+    }
+
+    @Test
+    public void sortIsStable() {
+        ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(2, 1, 2, 1, 2);
+        int[] rows = RowSorter.sortRows(adapter, RowComparators.text(1), null, null, 1);
+        assertArrayEquals(new int[]{0, 2, 4, 1, 3, 5}, rows);
+    }
+
+    @Test
+    public void numbersBeforeText() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"value"},
+                new String[]{"abc"},
+                new String[]{"10"},
+                new String[]{"-2.5"},
+                new String[]{"9"});
+        int[] rows = RowSorter.sortRows(adapter, RowComparators.number(0), null, null, 1);
+        assertArrayEquals(new int[]{0, 3, 4, 2, 1}, rows);
+    }
+
+    @Test
+    public void filterKeepsHeader() {
+        ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(5, 15, 25, 12);
+        int[] rows = RowSorter.sortRows(adapter, RowComparators.number(1), RowFilters.numberRange(1, 10, 20), null, 1);
+        assertArrayEquals(new int[]{0, 4, 2}, rows);
+        rows = RowSorter.sortRows(adapter, null, RowFilters.contains(1, "5"), null, 1);
+        assertArrayEquals(new int[]{0, 1, 2, 3}, rows);
+        int[] inverse = RowSorter.inverse(new int[]{0, 4, 2}, 5);
+        assertArrayEquals(new int[]{0, -1, 2, -1, 1}, inverse);
+    }
+
+    @Test
+    public void dependsOnSortedColumnsOnly() {
+        assertTrue(RowSorter.dependsOnColumn(RowComparators.number(1), 1));
+        assertFalse(RowSorter.dependsOnColumn(RowComparators.number(1), 0));
+        assertTrue(RowSorter.dependsOnColumn(RowComparators.reverse(RowComparators.text(2)), 2));
+        assertFalse(RowSorter.dependsOnColumn(RowComparators.reverse(RowComparators.text(2)), 1));
+        assertTrue(RowSorter.dependsOnColumn(RowFilters.contains(3, "a"), 3));
+        assertFalse(RowSorter.dependsOnColumn(RowFilters.numberRange(3, 0, 1), 0));
+        assertFalse(RowSorter.dependsOnColumn(null, 0));
+        //不知道读取哪些列的实现依赖所有列
+        RowFilter filter = new RowFilter() {
+            @Override
+            public boolean accept(TableCellAdapter adapter, int row, StringBuilder buffer) {
+                return true;
+            }
+        };
+        assertTrue(RowSorter.dependsOnColumn(filter, 5));
+        assertTrue(RowSorter.dependsOnColumn(RowComparators.reverse(new RowComparator() {
+            @Override
+            public int compare(TableCellAdapter adapter, int row1, int row2, StringBuilder buffer1, StringBuilder buffer2) {
+                return 0;
+            }
+        }), 5));
+    }
+
+    @Test
+    public void parallelEqualsSerial() throws Exception {
+        Random random = new Random(1);
+        int[] values = new int[RowSorter.PARALLEL_THRESHOLD * 3 + 17];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(1000);
+        }
+        final ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(values);
+        final RowComparator comparator = RowComparators.number(1);
+        int[] serial = RowSorter.sortRows(adapter, comparator, null, null, 1);
+        for (int i = 2; i < serial.length; i++) {
+            int previous = values[serial[i - 1] - 1];
+            int current = values[serial[i] - 1];
+            assertTrue(previous < current || (previous == current && serial[i - 1] < serial[i]));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertArrayEquals(serial, RowSorter.sortRows(adapter, comparator, null, executor, 4));
+        } finally {
+            executor.shutdown();
+        }
+        //在单线程executor中排序时当前线程也领取分段，不会一直等待
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            int[] rows = single.submit(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    return RowSorter.sortRows(adapter, comparator, null, single, 4);
+                }
+            }).get();
+            assertArrayEquals(serial, rows);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+}
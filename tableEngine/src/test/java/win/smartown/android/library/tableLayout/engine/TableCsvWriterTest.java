@@ -0,0 +1,80 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+
+import static org.junit.Assert.assertEquals;
+
+public class TableCsvWriterTest {
+
+    private static String write(TableCsvWriter writer, ArrayTableCellAdapter adapter, TableSelection selection) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(adapter, selection, out);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void quotesOnlyFieldsThatNeedIt() throws IOException {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a", "b"},
+                new String[]{"x,1", "say \"hi\""},
+                new String[]{"line1\nline2", "plain"});
+        assertEquals("a,b\r\n\"x,1\",\"say \"\"hi\"\"\"\r\n\"line1\nline2\",plain\r\n",
+                write(new TableCsvWriter(), adapter, null));
+    }
+
+    //缓冲区很小时多字节字符不会被拆开
+    @Test
+    public void encodesUtf8AcrossBufferFlushes() throws IOException {
+        String emoji = new String(Character.toChars(0x1F600));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("é中").append(emoji);
+        }
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"名称"},
+                new String[]{text.toString()},
+                new String[]{"\"" + emoji + "\""});
+        TableCsvWriter writer = new TableCsvWriter(',', 16);
+        writer.setLineSeparator("\n");
+        assertEquals("名称\n" + text + "\n\"\"\"" + emoji + "\"\"\"\n", write(writer, adapter, null));
+    }
+
+    @Test
+    public void loneSurrogateBecomesReplacementCharacter() throws IOException {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(new String[]{"a\uD800b"});
+        assertEquals("a\uFFFDb\r\n", write(new TableCsvWriter(), adapter, null));
+    }
+
+    @Test
+    public void tabSeparated() throws IOException {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a", "b"},
+                new String[]{"x,1", "y\tz"});
+        TableCsvWriter writer = new TableCsvWriter('\t', TableCsvWriter.DEFAULT_BUFFER_SIZE);
+        assertEquals("a\tb\r\nx,1\t\"y\tz\"\r\n", write(writer, adapter, null));
+    }
+
+    //只导出有选中单元格的行和列，其中未选中的单元格为空，标题行始终导出
+    @Test
+    public void selectionLimitsRowsAndColumns() throws IOException {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"h0", "h1", "h2"},
+                new String[]{"a0", "a1", "a2"},
+                new String[]{"b0", "b1", "b2"},
+                new String[]{"c0", "c1", "c2"});
+        TableSelection selection = new TableSelection();
+        selection.select(2, 1, 4, 2);
+        selection.select(3, 2, 4, 3);
+        TableCsvWriter writer = new TableCsvWriter();
+        writer.setLineSeparator("\n");
+        assertEquals("h1,h2\nb1,\nc1,c2\n", write(writer, adapter, selection));
+        selection.clear();
+        assertEquals("h0,h1,h2\na0,a1,a2\nb0,b1,b2\nc0,c1,c2\n", write(writer, adapter, selection));
+    }
+
+}
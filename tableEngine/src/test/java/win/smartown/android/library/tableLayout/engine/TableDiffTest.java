@@ -0,0 +1,198 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TableDiffTest {
+
+    @Test
+    public void sameDataIsEmpty() {
+        ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(1, 2, 3);
+        TableDiff diff = TableDiff.compute(adapter, ArrayTableCellAdapter.numbered(1, 2, 3), TableDiff.columnKey(0));
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void differentColumnCountReturnsNull() {
+        ArrayTableCellAdapter oldAdapter = new ArrayTableCellAdapter(new String[]{"a"});
+        ArrayTableCellAdapter newAdapter = new ArrayTableCellAdapter(new String[]{"a", "b"});
+        assertNull(TableDiff.compute(oldAdapter, newAdapter, null));
+    }
+
+    @Test
+    public void changedCellsUseNewRows() {
+        ArrayTableCellAdapter oldAdapter = ArrayTableCellAdapter.numbered(1, 2, 3);
+        ArrayTableCellAdapter newAdapter = ArrayTableCellAdapter.numbered(1, 5, 3);
+        newAdapter.removeRows(1, 1);
+        TableDiff diff = TableDiff.compute(oldAdapter, newAdapter, TableDiff.columnKey(0));
+        assertEquals(1, diff.getOperationCount());
+        assertEquals(TableDiff.REMOVE, diff.getOperationType(0));
+        assertEquals(1, diff.getChangedCellCount());
+        assertEquals(1, diff.getChangedRow(0));
+        assertEquals(1, diff.getChangedColumn(0));
+        assertReplays(oldAdapter, newAdapter, diff);
+    }
+
+    @Test
+    public void operationsReplayToNewData() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] oldIds = randomIds(random, random.nextInt(30));
+            int[] newIds = edit(random, oldIds);
+            ArrayTableCellAdapter oldAdapter = keyed(oldIds, random);
+            ArrayTableCellAdapter newAdapter = keyed(newIds, random);
+            TableDiff diff = TableDiff.compute(oldAdapter, newAdapter, TableDiff.columnKey(0));
+            assertNotNull(diff);
+            assertReplays(oldAdapter, newAdapter, diff);
+            //以整行作为key时内容变化的行被当作删除后插入
+            TableDiff contentDiff = TableDiff.compute(oldAdapter, newAdapter, null);
+            assertNotNull(contentDiff);
+            assertEquals(0, contentDiff.getChangedCellCount());
+            assertReplays(oldAdapter, newAdapter, contentDiff);
+        }
+    }
+
+    //key相同的行在新数据中的位置
+    @Test
+    public void rowMapFollowsKeys() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int[] oldIds = randomIds(random, random.nextInt(30));
+            int[] newIds = edit(random, oldIds);
+            TableDiff diff = TableDiff.compute(keyed(oldIds, random), keyed(newIds, random), TableDiff.columnKey(0));
+            //第0行为标题
+            int[] rowMap = diff.getRowMap(oldIds.length + 1);
+            assertEquals(0, rowMap[0]);
+            for (int row = 0; row < oldIds.length; row++) {
+                int newRow = rowMap[row + 1];
+                if (newRow < 0) {
+                    assertFalse(contains(newIds, oldIds[row]));
+                } else {
+                    assertEquals(oldIds[row], newIds[newRow - 1]);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int value : ids) {
+            if (value == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void applyDiffMatchesFullMeasure() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int[] oldIds = randomIds(random, 1 + random.nextInt(20));
+            ArrayTableCellAdapter oldAdapter = keyed(oldIds, random);
+            ArrayTableCellAdapter newAdapter = keyed(edit(random, oldIds), random);
+            TableLayoutEngine engine = new TableLayoutEngine(20, 2);
+            engine.setAdapter(oldAdapter, TableLayoutEngineTest.MEASURER);
+            engine.measure();
+            engine.applyDiff(newAdapter, TableDiff.compute(oldAdapter, newAdapter, TableDiff.columnKey(0)));
+            TableLayoutEngine expected = new TableLayoutEngine(20, 2);
+            expected.setAdapter(newAdapter, TableLayoutEngineTest.MEASURER);
+            expected.measure();
+            assertEquals(expected.getRowCount(), engine.getRowCount());
+            assertEquals(expected.getHeight(), engine.getHeight());
+            for (int column = 0; column < expected.getColumnCount(); column++) {
+                assertEquals(expected.getColumnWidth(column), engine.getColumnWidth(column));
+            }
+        }
+    }
+
+    //依次执行插入、删除，再写入变化的单元格，应得到新数据
+    private static void assertReplays(ArrayTableCellAdapter oldAdapter, ArrayTableCellAdapter newAdapter, TableDiff diff) {
+        List<String[]> rows = new ArrayList<>();
+        for (int row = 0; row < oldAdapter.getRowCount(); row++) {
+            rows.add(readRow(oldAdapter, row));
+        }
+        for (int i = 0; i < diff.getOperationCount(); i++) {
+            int position = diff.getOperationPosition(i);
+            int count = diff.getOperationCount(i);
+            if (diff.getOperationType(i) == TableDiff.INSERT) {
+                for (int j = 0; j < count; j++) {
+                    rows.add(position + j, readRow(newAdapter, position + j));
+                }
+            } else {
+                rows.subList(position, position + count).clear();
+            }
+        }
+        for (int i = 0; i < diff.getChangedCellCount(); i++) {
+            int row = diff.getChangedRow(i);
+            int column = diff.getChangedColumn(i);
+            rows.get(row)[column] = newAdapter.getText(row, column);
+        }
+        assertEquals(newAdapter.getRowCount(), rows.size());
+        for (int row = 0; row < rows.size(); row++) {
+            assertEquals(Arrays.asList(readRow(newAdapter, row)), Arrays.asList(rows.get(row)));
+        }
+    }
+
+    private static String[] readRow(ArrayTableCellAdapter adapter, int row) {
+        String[] cells = new String[adapter.getColumnCount()];
+        for (int column = 0; column < cells.length; column++) {
+            cells[column] = adapter.getText(row, column);
+        }
+        return cells;
+    }
+
+    private static int[] randomIds(Random random, int count) {
+        int[] ids = new int[count];
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            id += 1 + random.nextInt(3);
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    //随机删除、插入一些id，插入的id不会与已有的重复
+    private static int[] edit(Random random, int[] ids) {
+        List<Integer> edited = new ArrayList<>();
+        int next = 1000;
+        for (int id : ids) {
+            if (random.nextInt(5) == 0) {
+                edited.add(next++);
+            }
+            if (random.nextInt(4) != 0) {
+                edited.add(id);
+            }
+        }
+        if (random.nextBoolean()) {
+            edited.add(next);
+        }
+        int[] result = new int[edited.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = edited.get(i);
+        }
+        return result;
+    }
+
+    //第0列为id，第1列为随机内容，相同id的行内容可能不同
+    private static ArrayTableCellAdapter keyed(int[] ids, Random random) {
+        String[][] rows = new String[ids.length + 1][];
+        rows[0] = new String[]{"id", "value"};
+        for (int i = 0; i < ids.length; i++) {
+            rows[i + 1] = new String[]{String.valueOf(ids[i]), random.nextInt(3) == 0 ? "xxxxxx" : String.valueOf(ids[i] % 7)};
+        }
+        return new ArrayTableCellAdapter(rows);
+    }
+
+}
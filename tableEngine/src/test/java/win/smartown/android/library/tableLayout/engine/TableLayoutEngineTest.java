@@ -0,0 +1,125 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TableLayoutEngineTest {
+
+    //每个字符宽10像素
+    static final TextMeasurer MEASURER = new TextMeasurer() {
+        @Override
+        public float measureText(CharSequence text, int start, int end) {
+            return (end - start) * 10;
+        }
+    };
+
+    private static TableLayoutEngine newEngine(ArrayTableCellAdapter adapter) {
+        TableLayoutEngine engine = new TableLayoutEngine(20, 5);
+        engine.setAdapter(adapter, MEASURER);
+        engine.measure();
+        return engine;
+    }
+
+    @Test
+    public void measureUsesWidestCell() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a", "bb"},
+                new String[]{"ccc", "d"});
+        TableLayoutEngine engine = newEngine(adapter);
+        assertEquals(40, engine.getColumnWidth(0));
+        assertEquals(30, engine.getColumnWidth(1));
+        assertEquals(70, engine.getWidth());
+        assertEquals(40, engine.getHeight());
+        assertEquals(40, engine.getColumnLeft(1));
+        assertEquals(1, engine.columnAt(45));
+        assertEquals(1, engine.rowAt(20));
+        assertEquals(-1, engine.rowAt(40));
+    }
+
+    @Test
+    public void maxColumnWidthClampsMeasuredWidth() {
+        TableLayoutEngine engine = newEngine(new ArrayTableCellAdapter(new String[]{"aaaaaaaaaa"}));
+        assertEquals(110, engine.getColumnWidth(0));
+        engine.setMaxColumnWidth(60);
+        assertEquals(60, engine.getColumnWidth(0));
+        assertEquals(60, engine.getWidth());
+        engine.setColumnWidth(0, 200);
+        assertEquals(200, engine.getWidth());
+    }
+
+    @Test
+    public void notifyCellChangedWidensAndShrinks() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a"},
+                new String[]{"bbb"},
+                new String[]{"cc"});
+        TableLayoutEngine engine = newEngine(adapter);
+        assertEquals(40, engine.getColumnWidth(0));
+        adapter.setCell(2, 0, "ddddd");
+        assertTrue(engine.notifyCellChanged(2, 0));
+        assertEquals(60, engine.getColumnWidth(0));
+        assertFalse(engine.notifyCellChanged(1, 0));
+        //最宽的单元格变窄后重新测量整列
+        adapter.setCell(2, 0, "e");
+        assertTrue(engine.notifyCellChanged(2, 0));
+        assertEquals(40, engine.getColumnWidth(0));
+        assertEquals(40, engine.getWidth());
+    }
+
+    @Test
+    public void notifyRowRangeChangedRemeasuresWidestRow() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a"},
+                new String[]{"bbbb"},
+                new String[]{"cc"});
+        TableLayoutEngine engine = newEngine(adapter);
+        adapter.setCell(1, 0, "b");
+        assertTrue(engine.notifyRowRangeChanged(1, 1));
+        assertEquals(30, engine.getColumnWidth(0));
+    }
+
+    @Test
+    public void insertAndRemoveRows() {
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(
+                new String[]{"a"},
+                new String[]{"bb"});
+        TableLayoutEngine engine = newEngine(adapter);
+        engine.setRowHeight(1, 50);
+        adapter.insertRows(1, new String[]{"cccc"}, new String[]{"d"});
+        engine.notifyRowRangeInserted(1, 2);
+        assertEquals(4, engine.getRowCount());
+        assertEquals(50, engine.getColumnWidth(0));
+        //单独设置的行高跟随原来的行移动
+        assertEquals(50, engine.getRowHeight(3));
+        assertEquals(110, engine.getHeight());
+        adapter.removeRows(1, 1);
+        engine.notifyRowRangeRemoved(1, 1);
+        assertEquals(3, engine.getRowCount());
+        assertEquals(30, engine.getColumnWidth(0));
+        assertEquals(90, engine.getHeight());
+    }
+
+    @Test
+    public void sampledModeMeasuresHeaderAndEnds() {
+        String[][] rows = new String[1000][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new String[]{"x"};
+        }
+        rows[0] = new String[]{"header"};
+        rows[500] = new String[]{"a long cell"};
+        ArrayTableCellAdapter adapter = new ArrayTableCellAdapter(rows);
+        TableLayoutEngine engine = new TableLayoutEngine(20, 0);
+        engine.setWidthMode(TableLayoutEngine.WIDTH_MODE_SAMPLED);
+        engine.setSampleRows(10);
+        engine.setAdapter(adapter, MEASURER);
+        engine.measure();
+        //字符数最多的行也被测量
+        assertEquals(110, engine.getColumnWidth(0));
+    }
+
+}
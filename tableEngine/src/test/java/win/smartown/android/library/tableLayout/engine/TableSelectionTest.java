@@ -0,0 +1,230 @@
+package win.smartown.android.library.tableLayout.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import win.smartown.android.library.tableLayout.ArrayTableCellAdapter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TableSelectionTest {
+
+    @Test
+    public void adjacentCellsMerge() {
+        TableSelection selection = new TableSelection();
+        selection.selectCell(1, 1);
+        selection.selectCell(1, 2);
+        selection.selectCell(2, 1);
+        selection.selectCell(2, 2);
+        assertEquals(1, selection.getRangeCount());
+        assertRange(selection, 0, 1, 1, 3, 3);
+    }
+
+    @Test
+    public void selectOverlappingDoesNotDuplicate() {
+        TableSelection selection = new TableSelection();
+        selection.select(0, 0, 4, 4);
+        selection.select(2, 2, 6, 6);
+        assertSelected(selection, new boolean[][]{
+                {true, true, true, true, false, false},
+                {true, true, true, true, false, false},
+                {true, true, true, true, true, true},
+                {true, true, true, true, true, true},
+                {false, false, true, true, true, true},
+                {false, false, true, true, true, true}});
+        int cells = 0;
+        int[] range = new int[4];
+        for (int i = 0; i < selection.getRangeCount(); i++) {
+            selection.getRange(i, range);
+            cells += (range[2] - range[0]) * (range[3] - range[1]);
+        }
+        assertEquals(28, cells);
+    }
+
+    @Test
+    public void deselectSubtracts() {
+        TableSelection selection = new TableSelection();
+        selection.select(0, 0, 3, 3);
+        selection.deselect(1, 1, 2, 2);
+        assertSelected(selection, new boolean[][]{
+                {true, true, true},
+                {true, false, true},
+                {true, true, true}});
+        selection.toggleCell(1, 1);
+        selection.toggleCell(0, 0);
+        assertTrue(selection.isSelected(1, 1));
+        assertFalse(selection.isSelected(0, 0));
+        selection.clear();
+        assertTrue(selection.isEmpty());
+    }
+
+    @Test
+    public void wholeRowsAndColumns() {
+        TableSelection selection = new TableSelection();
+        selection.selectRow(3);
+        selection.selectColumn(5);
+        assertTrue(selection.isSelected(3, 1000));
+        assertTrue(selection.isSelected(1000, 5));
+        assertFalse(selection.isSelected(4, 4));
+    }
+
+    @Test
+    public void insertShiftsAndSplits() {
+        TableSelection selection = new TableSelection();
+        selection.select(2, 0, 5, 1);
+        selection.select(8, 0, 9, 1);
+        selection.onRowsInserted(3, 2);
+        assertSelectedRows(selection, 0, new int[]{2, 3, 5, 7, 10, 11});
+        //选中到最后一行的区域包括新插入的行
+        selection.selectColumn(3);
+        selection.onRowsInserted(2, 1);
+        assertTrue(selection.isSelected(2, 3));
+    }
+
+    @Test
+    public void removeShiftsAndShrinks() {
+        TableSelection selection = new TableSelection();
+        selection.select(2, 0, 5, 1);
+        selection.select(8, 0, 9, 1);
+        selection.onRowsRemoved(3, 4);
+        assertSelectedRows(selection, 0, new int[]{2, 3, 4, 5});
+        selection.onRowsRemoved(1, 1);
+        assertSelectedRows(selection, 0, new int[]{1, 2, 3, 4});
+        selection.onRowsRemoved(1, 2);
+        assertSelectedRows(selection, 0, new int[]{1, 2});
+        selection.onRowsRemoved(0, 5);
+        assertTrue(selection.isEmpty());
+    }
+
+    @Test
+    public void selectionFollowsSortedRows() {
+        ArrayTableCellAdapter adapter = ArrayTableCellAdapter.numbered(30, 10, 20, 40);
+        TableSelection selection = new TableSelection();
+        //选中30所在的整行、20所在的单元格以及第0列
+        selection.selectRow(1);
+        selection.selectCell(3, 1);
+        selection.selectColumn(0);
+        //按数值排序后依次为10、20、30、40
+        int[] rows = RowSorter.sortRows(adapter, RowComparators.number(1), null, null, 1);
+        selection.onRowsMoved(getRowMap(null, rows, adapter.getRowCount()));
+        assertSelected(selection, new boolean[][]{
+                {true, false},
+                {true, false},
+                {true, true},
+                {true, true},
+                {true, false}});
+        assertTrue(selection.isSelected(3, 100));
+        //筛选掉10、20后依次为30、40
+        int[] filtered = RowSorter.sortRows(adapter, RowComparators.number(1), RowFilters.numberRange(1, 25, 50), null, 1);
+        selection.onRowsMoved(getRowMap(rows, filtered, adapter.getRowCount()));
+        assertSelected(selection, new boolean[][]{
+                {true, false},
+                {true, true},
+                {true, false}});
+        //恢复原来的顺序
+        selection.onRowsMoved(getRowMap(filtered, null, adapter.getRowCount()));
+        assertSelected(selection, new boolean[][]{
+                {true, false},
+                {true, true},
+                {true, false},
+                {true, false},
+                {true, false}});
+    }
+
+    //与TableLayout中相同：原来显示的每一行按adapter中的行号找到新的位置
+    private static int[] getRowMap(int[] oldRows, int[] newRows, int sourceRowCount) {
+        int[] inverse = newRows == null ? null : RowSorter.inverse(newRows, sourceRowCount);
+        int oldRowCount = oldRows == null ? sourceRowCount : oldRows.length;
+        int[] rowMap = new int[oldRowCount];
+        for (int row = 0; row < oldRowCount; row++) {
+            int sourceRow = oldRows == null ? row : oldRows[row];
+            rowMap[row] = inverse == null ? sourceRow : inverse[sourceRow];
+        }
+        return rowMap;
+    }
+
+    @Test
+    public void isSelectedMatchesCells() {
+        Random random = new Random(7);
+        TableSelection selection = new TableSelection();
+        boolean[][] cells = new boolean[30][12];
+        for (int i = 0; i < 300; i++) {
+            int top = random.nextInt(30);
+            int left = random.nextInt(12);
+            int bottom = top + 1 + random.nextInt(30 - top);
+            int right = left + 1 + random.nextInt(12 - left);
+            boolean select = random.nextInt(3) != 0;
+            if (select) {
+                selection.select(top, left, bottom, right);
+            } else {
+                selection.deselect(top, left, bottom, right);
+            }
+            for (int row = top; row < bottom; row++) {
+                for (int column = left; column < right; column++) {
+                    cells[row][column] = select;
+                }
+            }
+            for (int row = 0; row < 31; row++) {
+                for (int column = 0; column < 13; column++) {
+                    boolean expected = row < 30 && column < 12 && cells[row][column];
+                    assertEquals("step " + i + " cell " + row + "," + column, expected, selection.isSelected(row, column));
+                }
+            }
+        }
+        selection.selectRow(40);
+        assertTrue(selection.isSelected(40, 1000));
+        assertFalse(selection.isSelected(41, 0));
+    }
+
+    @Test
+    public void listenerReceivesChangedRange() {
+        TableSelection selection = new TableSelection();
+        final int[] changed = new int[5];
+        selection.addListener(new TableSelection.Listener() {
+            @Override
+            public void onSelectionChanged(TableSelection selection, int top, int left, int bottom, int right) {
+                changed[0]++;
+                changed[1] = top;
+                changed[2] = left;
+                changed[3] = bottom;
+                changed[4] = right;
+            }
+        });
+        selection.select(1, 2, 3, 4);
+        assertArrayEquals(new int[]{1, 1, 2, 3, 4}, changed);
+        selection.deselect(0, 0, 1, 1);
+        assertEquals(2, changed[0]);
+    }
+
+    private static void assertRange(TableSelection selection, int index, int top, int left, int bottom, int right) {
+        int[] range = new int[4];
+        selection.getRange(index, range);
+        assertArrayEquals(new int[]{top, left, bottom, right}, range);
+    }
+
+    private static void assertSelected(TableSelection selection, boolean[][] expected) {
+        for (int row = 0; row < expected.length; row++) {
+            for (int column = 0; column < expected[row].length; column++) {
+                assertEquals("(" + row + ", " + column + ")", expected[row][column], selection.isSelected(row, column));
+            }
+        }
+    }
+
+    //column列中选中的行，rows中依次为各段的[start, end)
+    private static void assertSelectedRows(TableSelection selection, int column, int[] rows) {
+        for (int row = 0; row < 20; row++) {
+            boolean selected = false;
+            for (int i = 0; i < rows.length; i += 2) {
+                if (row >= rows[i] && row < rows[i + 1]) {
+                    selected = true;
+                }
+            }
+            assertEquals("row " + row, selected, selection.isSelected(row, column));
+        }
+    }
+
+}
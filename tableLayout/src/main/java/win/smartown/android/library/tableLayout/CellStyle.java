@@ -0,0 +1,56 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Color;
+
+/**
+ * 单元格样式，不可修改，相同的样式在CellStylePalette中只保存一份
+ */
+public final class CellStyle {
+
+    private final int textColor;
+    private final int backgroundColor;
+    private final boolean bold;
+
+    public CellStyle(int textColor) {
+        this(textColor, Color.TRANSPARENT, false);
+    }
+
+    public CellStyle(int textColor, int backgroundColor, boolean bold) {
+        this.textColor = textColor;
+        this.backgroundColor = backgroundColor;
+        this.bold = bold;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public int getBackgroundColor() {
+        return backgroundColor;
+    }
+
+    public boolean isBold() {
+        return bold;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CellStyle)) {
+            return false;
+        }
+        CellStyle style = (CellStyle) o;
+        return textColor == style.textColor && backgroundColor == style.backgroundColor && bold == style.bold;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = textColor;
+        result = 31 * result + backgroundColor;
+        result = 31 * result + (bold ? 1 : 0);
+        return result;
+    }
+
+}
@@ -0,0 +1,57 @@
+package win.smartown.android.library.tableLayout;
+
+import android.text.TextPaint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 表格中用到的全部样式，单元格只引用样式的id(下标)，virtual模式下每个样式只创建一个TextPaint
+ */
+public class CellStylePalette {
+
+    private final ArrayList<CellStyle> styles = new ArrayList<>();
+    private final HashMap<CellStyle, Integer> ids = new HashMap<>();
+    //由TableLayout的TextPaint复制，字体大小、对齐方式相同
+    private final ArrayList<TextPaint> paints = new ArrayList<>();
+
+    //相同的样式返回同一个id
+    public int add(CellStyle style) {
+        Integer id = ids.get(style);
+        if (id == null) {
+            id = styles.size();
+            styles.add(style);
+            ids.put(style, id);
+        }
+        return id;
+    }
+
+    public CellStyle get(int id) {
+        return styles.get(id);
+    }
+
+    public int size() {
+        return styles.size();
+    }
+
+    TextPaint getPaint(int id, TextPaint basePaint) {
+        while (paints.size() <= id) {
+            paints.add(null);
+        }
+        TextPaint paint = paints.get(id);
+        if (paint == null) {
+            CellStyle style = styles.get(id);
+            paint = new TextPaint(basePaint);
+            paint.setColor(style.getTextColor());
+            paint.setFakeBoldText(style.isBold());
+            paints.set(id, paint);
+        }
+        return paint;
+    }
+
+    //TableLayout的文字样式变化后重新创建TextPaint
+    void clearPaints() {
+        paints.clear();
+    }
+
+}
@@ -2,12 +2,17 @@ package win.smartown.android.library.tableLayout;
 
 import android.annotation.TargetApi;
 import android.content.Context;
+import android.graphics.Canvas;
 import android.os.Build;
 import android.util.AttributeSet;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.FrameLayout;
+import android.widget.Scroller;
+
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
 
 /**
  * Created by Smartown on 2017/7/19.
@@ -15,6 +20,17 @@ import android.widget.FrameLayout;
 public class FreeScrollView extends FrameLayout {
 
     private GestureDetector gestureDetector;
+    //双指缩放virtual模式的TableLayout，Android 2.2以下为null
+    private ScaleGestureDetector scaleGestureDetector;
+    private boolean zoomEnabled = true;
+    private Scroller scroller;
+    //子View超出自身的宽高，在onLayout()中更新
+    private int maxScrollX;
+    private int maxScrollY;
+    //手指按下时停止了惯性滑动，这次点击不作为单元格点击
+    private boolean scrollerStopped;
+    //上次绘制之后滚动过，下一帧的绘制耗时报告给TableLayout的TableMetricsListener
+    private boolean scrolledSinceDraw;
 
     public FreeScrollView(Context context) {
         super(context);
@@ -46,9 +62,15 @@ public class FreeScrollView extends FrameLayout {
     }
 
     private void init() {
+        scroller = new Scroller(getContext());
         gestureDetector = new GestureDetector(getContext(), new GestureDetector.OnGestureListener() {
             @Override
             public boolean onDown(MotionEvent e) {
+                scrollerStopped = !scroller.isFinished();
+                if (scrollerStopped) {
+                    scroller.abortAnimation();
+                    setTableFlinging(false);
+                }
                 return false;
             }
 
@@ -59,6 +81,9 @@ public class FreeScrollView extends FrameLayout {
 
             @Override
             public boolean onSingleTapUp(MotionEvent e) {
+                if (scrollerStopped) {
+                    return false;
+                }
                 View view = getChildAt(0);
                 if (view instanceof TableLayout) {
                     ((TableLayout) view).onClick(e.getX() + getScrollX(), e.getY() + getScrollY());
@@ -68,45 +93,10 @@ public class FreeScrollView extends FrameLayout {
 
             @Override
             public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-                View view = getChildAt(0);
-                int childHeight = view.getHeight();
-                int childWidth = view.getWidth();
-                int toX, toY;
-                if (distanceX > 0) {
-                    if (childWidth > getWidth()) {
-                        if (getScrollX() + getWidth() >= childWidth) {
-                            toX = childWidth - getWidth();
-                        } else {
-                            toX = (int) (getScrollX() + distanceX);
-                        }
-                    } else {
-                        toX = 0;
-                    }
-                } else {
-                    if (getScrollX() + distanceX < 0) {
-                        toX = 0;
-                    } else {
-                        toX = (int) (getScrollX() + distanceX);
-                    }
-                }
-                if (distanceY > 0) {
-                    if (childHeight > getHeight()) {
-                        if (getScrollY() + getHeight() >= childHeight) {
-                            toY = childHeight - getHeight();
-                        } else {
-                            toY = (int) (getScrollY() + distanceY);
-                        }
-                    } else {
-                        toY = 0;
-                    }
-                } else {
-                    if (getScrollY() + distanceY < 0) {
-                        toY = 0;
-                    } else {
-                        toY = (int) (getScrollY() + distanceY);
-                    }
+                if (isZooming()) {
+                    return false;
                 }
-                scrollTo(toX, toY);
+                scrollTo(clampScrollX((int) (getScrollX() + distanceX)), clampScrollY((int) (getScrollY() + distanceY)));
                 return false;
             }
 
@@ -117,9 +107,175 @@ public class FreeScrollView extends FrameLayout {
 
             @Override
             public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-                return false;
+                if (isZooming()) {
+                    return false;
+                }
+                scroller.fling(getScrollX(), getScrollY(), -(int) velocityX, -(int) velocityY, 0, maxScrollX, 0, maxScrollY);
+                setTableFlinging(true);
+                invalidate();
+                return true;
             }
         });
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.FROYO) {
+            scaleGestureDetector = new ScaleGestureDetector(getContext(), new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                @Override
+                public boolean onScaleBegin(ScaleGestureDetector detector) {
+                    TableLayout tableLayout = getTableLayout();
+                    if (!zoomEnabled || tableLayout == null || tableLayout.getTableRenderMode() != TableLayout.RENDER_MODE_VIRTUAL) {
+                        return false;
+                    }
+                    scroller.abortAnimation();
+                    setTableFlinging(false);
+                    tableLayout.setZooming(true);
+                    return true;
+                }
+
+                @Override
+                public boolean onScale(ScaleGestureDetector detector) {
+                    TableLayout tableLayout = getTableLayout();
+                    if (tableLayout != null) {
+                        zoomTo(tableLayout.getScale() * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                    }
+                    return true;
+                }
+
+                @Override
+                public void onScaleEnd(ScaleGestureDetector detector) {
+                    TableLayout tableLayout = getTableLayout();
+                    if (tableLayout != null) {
+                        tableLayout.setZooming(false);
+                    }
+                }
+            });
+        }
+    }
+
+    private TableLayout getTableLayout() {
+        View view = getChildAt(0);
+        return view instanceof TableLayout ? (TableLayout) view : null;
+    }
+
+    private boolean isZooming() {
+        TableLayout tableLayout = getTableLayout();
+        return tableLayout != null && tableLayout.isZooming();
+    }
+
+    public boolean isZoomEnabled() {
+        return zoomEnabled;
+    }
+
+    //是否允许双指缩放，只对virtual模式的TableLayout有效
+    public void setZoomEnabled(boolean zoomEnabled) {
+        this.zoomEnabled = zoomEnabled;
+    }
+
+    /**
+     * 缩放TableLayout，(focusX, focusY)处的内容位置保持不变
+     *
+     * @param focusX 相对于FreeScrollView的坐标
+     */
+    public void zoomTo(float scale, float focusX, float focusY) {
+        TableLayout tableLayout = getTableLayout();
+        if (tableLayout == null) {
+            return;
+        }
+        float oldScale = tableLayout.getScale();
+        tableLayout.setScale(scale);
+        float factor = tableLayout.getScale() / oldScale;
+        if (factor == 1) {
+            return;
+        }
+        float x = (getScrollX() + focusX - tableLayout.getLeft()) * factor + tableLayout.getLeft() - focusX;
+        float y = (getScrollY() + focusY - tableLayout.getTop()) * factor + tableLayout.getTop() - focusY;
+        //TableLayout重新布局前先按缩放后的宽高更新滚动范围
+        maxScrollX = Math.max(0, tableLayout.getScaledWidth() - getWidth());
+        maxScrollY = Math.max(0, tableLayout.getScaledHeight() - getHeight());
+        scrollTo(clampScrollX(Math.round(x)), clampScrollY(Math.round(y)));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        if (getChildCount() == 0) {
+            return;
+        }
+        View view = getChildAt(0);
+        maxScrollX = Math.max(0, view.getWidth() - getWidth());
+        maxScrollY = Math.max(0, view.getHeight() - getHeight());
+        if (getScrollX() > maxScrollX || getScrollY() > maxScrollY) {
+            scrollTo(clampScrollX(getScrollX()), clampScrollY(getScrollY()));
+        }
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            scrollTo(clampScrollX(scroller.getCurrX()), clampScrollY(scroller.getCurrY()));
+            invalidate();
+        } else {
+            setTableFlinging(false);
+        }
+    }
+
+    //滚动到第row行第column列的单元格，使其位于左上角(不超出滚动范围)
+    public void smoothScrollToCell(int row, int column) {
+        View view = getChildAt(0);
+        if (!(view instanceof TableLayout)) {
+            return;
+        }
+        TableLayoutEngine engine = ((TableLayout) view).getLayoutEngine();
+        if (row < 0 || row >= engine.getRowCount() || column < 0 || column >= engine.getColumnCount()) {
+            return;
+        }
+        float scale = ((TableLayout) view).getScale();
+        int toX = clampScrollX(view.getLeft() + (int) (engine.getColumnLeft(column) * scale));
+        int toY = clampScrollY(view.getTop() + (int) (engine.getRowTop(row) * scale));
+        scroller.abortAnimation();
+        scroller.startScroll(getScrollX(), getScrollY(), toX - getScrollX(), toY - getScrollY());
+        setTableFlinging(true);
+        invalidate();
+    }
+
+    public boolean isFlinging() {
+        return !scroller.isFinished();
+    }
+
+    private int clampScrollX(int x) {
+        return Math.max(0, Math.min(x, maxScrollX));
+    }
+
+    private int clampScrollY(int y) {
+        return Math.max(0, Math.min(y, maxScrollY));
+    }
+
+    private void setTableFlinging(boolean flinging) {
+        View view = getChildAt(0);
+        if (view instanceof TableLayout) {
+            ((TableLayout) view).setFlinging(flinging);
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        View view = getChildAt(0);
+        if (!scrolledSinceDraw || !(view instanceof TableLayout) || ((TableLayout) view).getMetricsListener() == null) {
+            super.draw(canvas);
+            return;
+        }
+        scrolledSinceDraw = false;
+        long start = System.nanoTime();
+        super.draw(canvas);
+        ((TableLayout) view).onScrollFrameDrawn(System.nanoTime() - start);
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        scrolledSinceDraw = true;
+        View view = getChildAt(0);
+        if (view instanceof TableLayout) {
+            ((TableLayout) view).onViewportChanged();
+        }
     }
 
     @Override
@@ -129,6 +285,9 @@ public class FreeScrollView extends FrameLayout {
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (scaleGestureDetector != null) {
+            scaleGestureDetector.onTouchEvent(event);
+        }
         gestureDetector.onTouchEvent(event);
         return true;
     }
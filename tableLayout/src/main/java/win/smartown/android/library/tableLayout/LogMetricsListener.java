@@ -0,0 +1,29 @@
+package win.smartown.android.library.tableLayout;
+
+import android.util.Log;
+
+/**
+ * 将TableMetricsListener收到的统计输出到Logcat，用于排查卡顿
+ */
+public class LogMetricsListener implements TableMetricsListener {
+
+    private static final String TAG = "TableLayout";
+    private static final String[] PHASE_NAMES = {"bind", "measure", "layout", "draw", "scrollFrame"};
+
+    @Override
+    public void onTiming(TableLayout tableLayout, int phase, long durationNanos) {
+        Log.i(TAG, PHASE_NAMES[phase] + " " + durationNanos / 1000 + "us");
+    }
+
+    @Override
+    public void onDrawCounts(TableLayout tableLayout, int cellsDrawn, int textMeasurements, int textCacheMisses, int tileHits, int tileMisses) {
+        Log.i(TAG, "cells=" + cellsDrawn + " textMeasurements=" + textMeasurements + " textCacheMisses=" + textCacheMisses
+                + " tileHits=" + tileHits + " tileMisses=" + tileMisses);
+    }
+
+    @Override
+    public void onEvent(TableLayout tableLayout, String tag, String message) {
+        Log.i(tag, message);
+    }
+
+}
@@ -0,0 +1,41 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Paint;
+
+import win.smartown.android.library.tableLayout.engine.TextMeasurer;
+
+/**
+ * 使用Paint测量文字宽度，结果保存在TextWidthCache中
+ */
+class PaintTextMeasurer implements TextMeasurer {
+
+    private final Paint paint;
+    private final TextWidthCache cache;
+    //为true时统计测量次数，未命中次数按TextWidthCache的计数之差计算，其他线程同时使用该缓存时会偏大
+    boolean counting;
+    int measureCount;
+    int missCount;
+
+    PaintTextMeasurer(Paint paint, TextWidthCache cache) {
+        this.paint = paint;
+        this.cache = cache;
+    }
+
+    @Override
+    public float measureText(CharSequence text, int start, int end) {
+        return measureText(paint, text, start, end);
+    }
+
+    //使用其他Paint(例如单元格样式)测量，同样计入统计
+    float measureText(Paint paint, CharSequence text, int start, int end) {
+        if (!counting) {
+            return cache.measureText(paint, text, start, end);
+        }
+        long misses = cache.getMissCount();
+        float width = cache.measureText(paint, text, start, end);
+        measureCount++;
+        missCount += (int) (cache.getMissCount() - misses);
+        return width;
+    }
+
+}
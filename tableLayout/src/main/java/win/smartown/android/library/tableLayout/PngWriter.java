@@ -0,0 +1,114 @@
+package win.smartown.android.library.tableLayout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 逐行写入PNG，压缩后的数据每满一个缓冲区写为一个IDAT块，不需要整张图片的Bitmap
+ * 只保存一行像素，占用内存与图片高度无关
+ */
+class PngWriter {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    private final OutputStream out;
+    private final int width;
+    //不透明时写为RGB，否则为RGBA
+    private final int bytesPerPixel;
+    private final byte[] row;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final DeflaterOutputStream idat;
+    private final CRC32 crc = new CRC32();
+    private final byte[] header = new byte[8];
+
+    PngWriter(OutputStream out, int width, int height, boolean opaque) throws IOException {
+        this.out = out;
+        this.width = width;
+        bytesPerPixel = opaque ? 3 : 4;
+        row = new byte[1 + width * bytesPerPixel];
+        out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        writeInt(ihdr, 0, width);
+        writeInt(ihdr, 4, height);
+        ihdr[8] = 8;
+        ihdr[9] = (byte) (opaque ? 2 : 6);
+        writeChunk("IHDR", ihdr, 0, ihdr.length);
+        idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, CHUNK_SIZE);
+    }
+
+    //pixels中从offset开始的width个像素，格式与Bitmap.getPixels()相同(未预乘的ARGB)
+    void writeRow(int[] pixels, int offset) throws IOException {
+        //Sub过滤：每个字节减去左边像素的同一分量，表格中大片相同的颜色压缩后更小
+        row[0] = 1;
+        int index = 1;
+        int previous = 0;
+        for (int i = 0; i < width; i++) {
+            int pixel = pixels[offset + i];
+            row[index++] = (byte) ((pixel >> 16) - (previous >> 16));
+            row[index++] = (byte) ((pixel >> 8) - (previous >> 8));
+            row[index++] = (byte) (pixel - previous);
+            if (bytesPerPixel == 4) {
+                row[index++] = (byte) ((pixel >>> 24) - (previous >>> 24));
+            }
+            previous = pixel;
+        }
+        idat.write(row, 0, index);
+    }
+
+    //写入所有行后调用，不关闭out
+    void finish() throws IOException {
+        try {
+            idat.finish();
+            writeChunk("IEND", row, 0, 0);
+            out.flush();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int offset, int length) throws IOException {
+        writeInt(header, 0, length);
+        for (int i = 0; i < 4; i++) {
+            header[4 + i] = (byte) type.charAt(i);
+        }
+        out.write(header, 0, 8);
+        out.write(data, offset, length);
+        crc.reset();
+        crc.update(header, 4, 4);
+        crc.update(data, offset, length);
+        writeInt(header, 0, (int) crc.getValue());
+        out.write(header, 0, 4);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    //DeflaterOutputStream每次写出的压缩数据直接作为IDAT块
+    private class IdatOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int count = Math.min(len, CHUNK_SIZE);
+                writeChunk("IDAT", b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+    }
+
+}
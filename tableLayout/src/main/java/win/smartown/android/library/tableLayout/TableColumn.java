@@ -3,7 +3,6 @@ package win.smartown.android.library.tableLayout;
 import android.content.Context;
 import android.graphics.Color;
 import android.text.TextUtils;
-import android.util.Log;
 import android.util.TypedValue;
 import android.view.Gravity;
 import android.widget.LinearLayout;
@@ -16,53 +15,225 @@ import java.util.ArrayList;
  */
 public class TableColumn extends LinearLayout {
 
-    private String[] content;
     private Callback callback;
     private float maxTextViewWidth;
+    //文字最宽的行，该行变窄或被删除时才需要重新计算maxTextViewWidth
+    private int widestRow = -1;
+    //是否有文字超出列宽，超出时按tableTextOverflow省略或折行
+    private boolean overflow;
+    //单独设置的列宽，-1表示使用文字宽度
+    private int columnWidth = -1;
+    //条件格式匹配的样式，为null时全部使用默认样式
+    private CellStyle[] rowStyles;
 
     public TableColumn(Context context, String[] content, Callback callback) {
         super(context);
-        this.content = content;
         this.callback = callback;
-        init();
+        init(content);
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        setMeasuredDimension((int) (callback.getTableLayout().getTableColumnPadding() * 2 + maxTextViewWidth), callback.getTableLayout().getTableRowHeight() * getChildCount());
+        int height = 0;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            height += getChildAt(i).getLayoutParams().height;
+        }
+        setMeasuredDimension(getColumnWidth(), height);
     }
 
-    private void init() {
-        Log.i("TableColumn", "init");
+    private void init(String[] content) {
+        callback.getTableLayout().dispatchMetricsEvent("TableColumn", "init");
         setOrientation(VERTICAL);
 
-        initContent();
+        initContent(content);
     }
 
-    private void initContent() {
-        int padding = callback.getTableLayout().getTableColumnPadding();
+    private void initContent(String[] content) {
         maxTextViewWidth = 0;
+        widestRow = -1;
         ArrayList<TextView> textViews = new ArrayList<>();
-        for (String text : content) {
-            if (TextUtils.isEmpty(text)) {
-                text = "";
-            }
-            TextView textView = new TextView(getContext());
-            textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, callback.getTableLayout().getTableTextSize());
-            textView.setTextColor(callback.getTableLayout().getTableTextColor());
-            maxTextViewWidth = Math.max(maxTextViewWidth, Util.measureTextViewWidth(textView, text));
-            textView.setGravity(getTextGravity(callback.getTableLayout().getTableTextGravity()));
-            textView.setPadding(padding, 0, padding, 0);
-            textView.setText(text);
+        for (int row = 0; row < content.length; row++) {
+            TextView textView = newTextView(content[row]);
+            widen(textView, row);
             textViews.add(textView);
         }
-        LayoutParams layoutParams = new LayoutParams((int) (padding * 2 + maxTextViewWidth), callback.getTableLayout().getTableRowHeight());
-        for (TextView textView : textViews) {
-            addView(textView, layoutParams);
+        int width = getColumnWidth();
+        overflow = isOverflow();
+        for (int row = 0; row < textViews.size(); row++) {
+            int height = callback.getTableLayout().getRowHeight(row);
+            if (overflow) {
+                setTextOverflow(textViews.get(row), height);
+            }
+            addView(textViews.get(row), new LayoutParams(width, height));
         }
     }
 
+    private TextView newTextView(String text) {
+        int padding = callback.getTableLayout().getTableColumnPadding();
+        TextView textView = new TextView(getContext());
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, callback.getTableLayout().getTableTextSize());
+        textView.setTextColor(callback.getTableLayout().getTableTextColor());
+        textView.setGravity(getTextGravity(callback.getTableLayout().getTableTextGravity()));
+        textView.setPadding(padding, 0, padding, 0);
+        textView.setText(TextUtils.isEmpty(text) ? "" : text);
+        return textView;
+    }
+
+    private float measureText(TextView textView) {
+        return callback.getTableLayout().getTextWidthCache().measureText(textView.getPaint(), textView.getText().toString());
+    }
+
+    private void widen(TextView textView, int row) {
+        float width = measureText(textView);
+        if (width > maxTextViewWidth || widestRow < 0) {
+            maxTextViewWidth = width;
+            widestRow = row;
+        }
+    }
+
+    private void remeasure() {
+        maxTextViewWidth = 0;
+        widestRow = -1;
+        int childCount = getChildCount();
+        for (int row = 0; row < childCount; row++) {
+            widen((TextView) getChildAt(row), row);
+        }
+    }
+
+    private boolean isOverflow() {
+        return getColumnWidth() < callback.getTableLayout().getTableColumnPadding() * 2 + maxTextViewWidth;
+    }
+
+    /**
+     * 只替换第row行的文字，最宽的文字变化时更新整列的宽度
+     *
+     * @return 列宽是否改变
+     */
+    public boolean setRowText(int row, String text) {
+        if (row >= getChildCount()) {
+            return false;
+        }
+        TextView textView = (TextView) getChildAt(row);
+        textView.setText(TextUtils.isEmpty(text) ? "" : text);
+        int oldWidth = getColumnWidth();
+        if (row == widestRow && measureText(textView) < maxTextViewWidth) {
+            remeasure();
+        } else {
+            widen(textView, row);
+        }
+        return onContentChanged(oldWidth, textView, row);
+    }
+
+    //在position处插入行，之后的行下移
+    public boolean insertRows(int position, String[] texts) {
+        int oldWidth = getColumnWidth();
+        if (widestRow >= position) {
+            widestRow += texts.length;
+        }
+        if (rowStyles != null) {
+            CellStyle[] styles = new CellStyle[rowStyles.length + texts.length];
+            System.arraycopy(rowStyles, 0, styles, 0, position);
+            System.arraycopy(rowStyles, position, styles, position + texts.length, rowStyles.length - position);
+            rowStyles = styles;
+        }
+        for (int i = 0; i < texts.length; i++) {
+            int row = position + i;
+            TextView textView = newTextView(texts[i]);
+            widen(textView, row);
+            int height = callback.getTableLayout().getRowHeight(row);
+            if (overflow) {
+                setTextOverflow(textView, height);
+            }
+            addView(textView, row, new LayoutParams(getColumnWidth(), height));
+        }
+        return onContentChanged(oldWidth, null, -1);
+    }
+
+    public boolean removeRows(int position, int count) {
+        int oldWidth = getColumnWidth();
+        removeViews(position, count);
+        if (rowStyles != null) {
+            CellStyle[] styles = new CellStyle[rowStyles.length - count];
+            System.arraycopy(rowStyles, 0, styles, 0, position);
+            System.arraycopy(rowStyles, position + count, styles, position, styles.length - position);
+            rowStyles = styles;
+        }
+        if (widestRow >= position + count) {
+            widestRow -= count;
+        } else if (widestRow >= position) {
+            remeasure();
+        }
+        return onContentChanged(oldWidth, null, -1);
+    }
+
+    //列宽或是否超出列宽变化时更新所有行，否则只更新changed
+    private boolean onContentChanged(int oldWidth, TextView changed, int changedRow) {
+        int width = getColumnWidth();
+        boolean newOverflow = isOverflow();
+        if (width != oldWidth || newOverflow != overflow) {
+            overflow = newOverflow;
+            int childCount = getChildCount();
+            for (int row = 0; row < childCount; row++) {
+                TextView textView = (TextView) getChildAt(row);
+                textView.getLayoutParams().width = width;
+                applyTextOverflow(textView, textView.getLayoutParams().height);
+            }
+        } else if (changed != null) {
+            applyTextOverflow(changed, callback.getTableLayout().getRowHeight(changedRow));
+        }
+        requestLayout();
+        return width != oldWidth;
+    }
+
+    private void applyTextOverflow(TextView textView, int height) {
+        if (overflow) {
+            setTextOverflow(textView, height);
+        } else {
+            textView.setSingleLine(false);
+            textView.setMaxLines(Integer.MAX_VALUE);
+            textView.setEllipsize(null);
+        }
+    }
+
+    private int getColumnWidth() {
+        if (columnWidth >= 0) {
+            return columnWidth;
+        }
+        int width = (int) (callback.getTableLayout().getTableColumnPadding() * 2 + maxTextViewWidth);
+        int maxWidth = callback.getTableLayout().getTableMaxColumnWidth();
+        return maxWidth > 0 ? Math.min(width, maxWidth) : width;
+    }
+
+    //列宽放不下的文字按tableTextOverflow省略或折行
+    private void setTextOverflow(TextView textView, int height) {
+        if (callback.getTableLayout().getTableTextOverflow() == TableLayout.TEXT_OVERFLOW_WRAP) {
+            textView.setMaxLines(Math.max(1, height / Math.max(1, textView.getLineHeight())));
+        } else {
+            textView.setSingleLine(true);
+        }
+        textView.setEllipsize(TextUtils.TruncateAt.END);
+    }
+
+    //width为-1时恢复为文字宽度
+    public void setColumnWidth(int width) {
+        columnWidth = width;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            getChildAt(i).getLayoutParams().width = getColumnWidth();
+        }
+        requestLayout();
+    }
+
+    public void setRowHeight(int row, int height) {
+        if (row >= getChildCount()) {
+            return;
+        }
+        getChildAt(row).getLayoutParams().height = height;
+        requestLayout();
+    }
+
     private int getTextGravity(int tableTextGravity) {
         switch (tableTextGravity) {
             case 1:
@@ -73,19 +244,41 @@ public class TableColumn extends LinearLayout {
         return Gravity.CENTER;
     }
 
-    public void onClick(float y) {
-        int childCount = getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            TextView textView = (TextView) getChildAt(i);
-            if (textView.getBottom() >= y) {
-                if (i == 0) {
-                    return;
-                }
-                textView.setSelected(!textView.isSelected());
-                textView.setBackgroundColor(textView.isSelected() ? callback.getTableLayout().getBackgroundColorSelected() : Color.TRANSPARENT);
-                textView.setTextColor(textView.isSelected() ? callback.getTableLayout().getTableTextColorSelected() : callback.getTableLayout().getTableTextColor());
+    //style为null时恢复默认样式
+    public void setRowStyle(int row, CellStyle style) {
+        if (row >= getChildCount()) {
+            return;
+        }
+        if (rowStyles == null) {
+            if (style == null) {
                 return;
             }
+            rowStyles = new CellStyle[getChildCount()];
+        }
+        rowStyles[row] = style;
+        TextView textView = (TextView) getChildAt(row);
+        textView.getPaint().setFakeBoldText(style != null && style.isBold());
+        applyRowColors(textView, row);
+    }
+
+    public void setRowSelected(int row, boolean selected) {
+        TextView textView = (TextView) getChildAt(row);
+        if (textView.isSelected() == selected) {
+            return;
+        }
+        textView.setSelected(selected);
+        applyRowColors(textView, row);
+    }
+
+    private void applyRowColors(TextView textView, int row) {
+        TableLayout tableLayout = callback.getTableLayout();
+        CellStyle style = rowStyles != null ? rowStyles[row] : null;
+        if (textView.isSelected()) {
+            textView.setBackgroundColor(tableLayout.getBackgroundColorSelected());
+            textView.setTextColor(tableLayout.getTableTextColorSelected());
+        } else {
+            textView.setBackgroundColor(style != null ? style.getBackgroundColor() : Color.TRANSPARENT);
+            textView.setTextColor(style != null ? style.getTextColor() : tableLayout.getTableTextColor());
         }
     }
 
@@ -3,21 +3,69 @@ package win.smartown.android.library.tableLayout;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextPaint;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewParent;
 import android.widget.LinearLayout;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import win.smartown.android.library.tableLayout.engine.CellStyleCache;
+import win.smartown.android.library.tableLayout.engine.CellStyleRule;
+import win.smartown.android.library.tableLayout.engine.ColumnMeasurer;
+import win.smartown.android.library.tableLayout.engine.RowComparator;
+import win.smartown.android.library.tableLayout.engine.RowFilter;
+import win.smartown.android.library.tableLayout.engine.RowSorter;
+import win.smartown.android.library.tableLayout.engine.TableCsvWriter;
+import win.smartown.android.library.tableLayout.engine.TableDiff;
+import win.smartown.android.library.tableLayout.engine.TableLayoutEngine;
+import win.smartown.android.library.tableLayout.engine.TableSelection;
+
 /**
  * Created by Smartown on 2017/7/19.
  */
 public class TableLayout extends LinearLayout implements TableColumn.Callback {
 
+    //根据所有单元格的内容确定列宽
+    public static final int TABLE_MODE_AUTO = 0;
+    public static final int TABLE_MODE_EQUALLY_DIVIDE = 1;
+    //只测量部分行确定列宽，绘制时遇到更宽的单元格再加宽该列，仅virtual模式有效
+    public static final int TABLE_MODE_SAMPLED = TableLayoutEngine.WIDTH_MODE_SAMPLED;
+
+    public static final int DEFAULT_SAMPLE_ROWS = TableLayoutEngine.DEFAULT_SAMPLE_ROWS;
+
+    //每个单元格对应一个TextView
+    public static final int RENDER_MODE_VIEW = 0;
+    //只在onDraw()中绘制可见区域内的单元格，不创建子View
+    public static final int RENDER_MODE_VIRTUAL = 1;
+
+    //超出列宽的文字在末尾显示省略号
+    public static final int TEXT_OVERFLOW_ELLIPSIZE = 0;
+    //超出列宽的文字折行，行高放不下时最后一行显示省略号
+    public static final int TEXT_OVERFLOW_WRAP = 1;
+
+    public static final float DEFAULT_MIN_SCALE = 0.02f;
+    public static final float DEFAULT_MAX_SCALE = 4f;
+    //缩放比例小于该值时单元格绘制为色块，不绘制文字和分割线
+    public static final float DEFAULT_OVERVIEW_SCALE = 0.5f;
+
+    //导出图片时每次绘制的条带Bitmap的最大字节数
+    public static final long DEFAULT_EXPORT_BAND_BYTES = 4 * 1024 * 1024;
+
     private int tableMode;
     private int tableRowHeight;
     private int tableDividerSize;
@@ -28,9 +76,90 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
     private int tableTextColor;
     private int tableTextColorSelected;
     private int backgroundColorSelected;
-    private TableAdapter adapter;
+    private int tableRenderMode;
+    private int tableSampleRows;
+    //不为0时根据内容计算的列宽不超过该值
+    private int tableMaxColumnWidth;
+    private int tableTextOverflow;
+    //virtual模式下的缩放比例，TableLayout的宽高、触摸坐标、块缓存都是缩放后的坐标，engine中是缩放前的坐标
+    private float scale = 1;
+    private float minScale = DEFAULT_MIN_SCALE;
+    private float maxScale = DEFAULT_MAX_SCALE;
+    private float tableOverviewScale;
+    //缩略图模式下每个色块的最小边长，缩放后的像素，色块数量只与可见区域的像素数有关
+    private int overviewBlockSize;
+    private int overviewTextColor;
+    private boolean zooming;
+    private TableCellAdapter adapter;
+    //排序、筛选后显示的行，为null时按adapter原来的顺序显示全部行
+    private SortedTableAdapter sortedAdapter;
+    private RowComparator rowComparator;
+    private RowFilter rowFilter;
+    private Executor sortExecutor;
+    private int sortGeneration;
+    private boolean sortRunning;
+    private boolean sortDirty;
+    //数据变化后等待重新排序，同一次消息循环中的多次变化只排序一次
+    private boolean rowOrderUpdatePending;
+    //排序、筛选期间内容变化、当时未显示的adapter中的行[start, end)，重新排序后再测量
+    private int unmeasuredRowsStart;
+    private int unmeasuredRowsEnd;
+    private Executor diffExecutor;
+    private int diffGeneration;
 
     private Paint paint;
+    private Paint dividerPaint;
+    private TextPaint textPaint;
+    private Paint.FontMetrics fontMetrics;
+    private Rect viewport;
+    //viewport、绘制范围换算为engine中缩放前的坐标
+    private final Rect tableViewport = new Rect();
+    private final Rect cellBounds = new Rect();
+    //绘制范围内的分割线，每条线4个坐标，布局或绘制范围变化后才重新计算
+    private float[] dividerLines = new float[64];
+    private int dividerLineCount;
+    private final Rect dividerBounds = new Rect();
+    private final Rect drawBounds = new Rect();
+    private boolean dividersDirty = true;
+
+    //列宽、行列偏移量的计算，view模式下列宽来自TableColumn
+    private TableLayoutEngine engine;
+    private int[] viewColumnWidths = new int[0];
+    //virtual模式下绘制、测量时复用，避免每个单元格创建String
+    private StringBuilder cellText = new StringBuilder();
+    private int[] clickedCell = new int[2];
+    //选中状态与View无关，重新设置数据或重建TableColumn后依然保留
+    private final TableSelection selection = new TableSelection();
+
+    //后台线程提交的单元格更新，按帧合并后在UI线程应用
+    private final TableUpdateQueue updateQueue = new TableUpdateQueue();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Choreographer.FrameCallback updateFrameCallback;
+
+    private TextWidthCache textWidthCache = TextWidthCache.getDefault();
+    //virtual模式下超出列宽的单元格折行、省略的结果
+    private TextLayoutCache textLayoutCache = TextLayoutCache.getDefault();
+    //不为空时virtual模式在该Executor中测量列宽，测量完成前不绘制单元格
+    private Executor measureExecutor;
+    private int measureGeneration;
+    private boolean widthsPending;
+    private boolean columnsWidened;
+    private boolean flinging;
+    //滑动期间有未折行、直接裁剪绘制的单元格，停止后重新绘制
+    private boolean flingTextClipped;
+    //为null时不使用块缓存，每次直接绘制可见的单元格
+    private TileCache tileCache;
+    //单元格样式：cellStyleRule计算出样式id，virtual模式下结果缓存在cellStyleCache中直到该单元格数据变化
+    private CellStylePalette cellStylePalette = new CellStylePalette();
+    private CellStyleRule cellStyleRule;
+    private final CellStyleCache cellStyleCache = new CellStyleCache();
+    //为null时不计时，计数在每次onDraw()后清零
+    private TableMetricsListener metricsListener;
+    private PaintTextMeasurer textMeasurer;
+    private int drawnCellCount;
+    private long reportedTileHits;
+    private long reportedTileMisses;
 
     public TableLayout(Context context) {
         super(context);
@@ -55,7 +184,6 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
     }
 
     private void init(AttributeSet attrs) {
-        Log.i("TableLayout", "init");
         setOrientation(HORIZONTAL);
         setWillNotDraw(false);
         paint = new Paint();
@@ -73,6 +201,11 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
             tableTextColor = typedArray.getColor(R.styleable.TableLayout_tableTextColor, Color.GRAY);
             tableTextColorSelected = typedArray.getColor(R.styleable.TableLayout_tableTextColorSelected, Color.BLACK);
             backgroundColorSelected = typedArray.getColor(R.styleable.TableLayout_backgroundColorSelected, Color.TRANSPARENT);
+            tableRenderMode = typedArray.getInt(R.styleable.TableLayout_tableRenderMode, RENDER_MODE_VIEW);
+            tableSampleRows = typedArray.getInt(R.styleable.TableLayout_tableSampleRows, DEFAULT_SAMPLE_ROWS);
+            tableMaxColumnWidth = typedArray.getDimensionPixelSize(R.styleable.TableLayout_tableMaxColumnWidth, 0);
+            tableTextOverflow = typedArray.getInt(R.styleable.TableLayout_tableTextOverflow, TEXT_OVERFLOW_ELLIPSIZE);
+            tableOverviewScale = typedArray.getFloat(R.styleable.TableLayout_tableOverviewScale, DEFAULT_OVERVIEW_SCALE);
             typedArray.recycle();
         } else {
             tableMode = 0;
@@ -85,30 +218,83 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
             tableTextColor = Color.GRAY;
             tableTextColorSelected = Color.BLACK;
             backgroundColorSelected = Color.TRANSPARENT;
+            tableRenderMode = RENDER_MODE_VIEW;
+            tableSampleRows = DEFAULT_SAMPLE_ROWS;
+            tableMaxColumnWidth = 0;
+            tableTextOverflow = TEXT_OVERFLOW_ELLIPSIZE;
+            tableOverviewScale = DEFAULT_OVERVIEW_SCALE;
         }
+        overviewBlockSize = Math.max(1, (int) Util.dip2px(getResources(), 2));
+        //有文字的单元格在缩略图中显示为半透明的文字颜色
+        overviewTextColor = Color.argb(Color.alpha(tableTextColor) / 3, Color.red(tableTextColor), Color.green(tableTextColor), Color.blue(tableTextColor));
+        textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setTextSize(tableTextSize);
+        textPaint.setTextAlign(getTextAlign(tableTextGravity));
+        fontMetrics = textPaint.getFontMetrics();
+        viewport = new Rect();
+        dividerPaint = new Paint();
+        dividerPaint.setColor(tableDividerColor);
+        dividerPaint.setStrokeWidth(tableDividerSize);
+        engine = new TableLayoutEngine(tableRowHeight, tableColumnPadding);
+        engine.setMaxColumnWidth(tableMaxColumnWidth);
+        selection.addListener(selectionListener);
         if (isInEditMode()) {
-            String[] content = {"a", "aa", "aaa", "aaaa", "aaaaa", "aaaaaa", "aaaaaaa", "aaaaaaaa"};
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
-            addView(new TableColumn(getContext(), content, this));
+            final String[] content = {"a", "aa", "aaa", "aaaa", "aaaaa", "aaaaaa", "aaaaaaa", "aaaaaaaa"};
+            setAdapter(new TableAdapter() {
+                @Override
+                public int getColumnCount() {
+                    return 7;
+                }
+
+                @Override
+                public String[] getColumnContent(int position) {
+                    return content;
+                }
+            });
+        }
+    }
+
+    private Paint.Align getTextAlign(int tableTextGravity) {
+        switch (tableTextGravity) {
+            case 1:
+                return Paint.Align.LEFT;
+            case 2:
+                return Paint.Align.RIGHT;
         }
+        return Paint.Align.CENTER;
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = startTiming();
+        try {
+            measureTable(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            endTiming(TableMetricsListener.PHASE_MEASURE, start);
+        }
+    }
+
+    private void measureTable(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            setMeasuredDimension(getScaledWidth(), getScaledHeight());
+            return;
+        }
         int width = 0;
         int height = 0;
+        int maxRowCount = 0;
         int childCount = getChildCount();
+        if (viewColumnWidths.length != childCount) {
+            viewColumnWidths = new int[childCount];
+        }
         for (int i = 0; i < childCount; i++) {
-            View child = getChildAt(i);
+            TableColumn child = (TableColumn) getChildAt(i);
+            viewColumnWidths[i] = child.getMeasuredWidth();
             width += child.getMeasuredWidth();
             height = Math.max(height, child.getMeasuredHeight());
+            maxRowCount = Math.max(maxRowCount, child.getChildCount());
         }
+        engine.setColumnWidths(viewColumnWidths, maxRowCount);
         setMeasuredDimension(width, height);
     }
 
@@ -119,35 +305,602 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
 
     @Override
     protected void onDraw(Canvas canvas) {
+        long start = startTiming();
         super.onDraw(canvas);
-        paint.setColor(tableDividerColor);
-        int drawnWidth = 0;
-        int maxRowCount = 0;
-        int childCount = getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            TableColumn column = (TableColumn) getChildAt(i);
-            maxRowCount = Math.max(maxRowCount, column.getChildCount());
-            if (i > 0) {
-                if (tableDividerSize > 1) {
-                    canvas.drawRect(drawnWidth - tableDividerSize / 2, 0, drawnWidth + tableDividerSize / 2, getHeight(), paint);
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            drawVisibleCells(canvas);
+        }
+        drawDividers(canvas);
+        if (metricsListener != null) {
+            endTiming(TableMetricsListener.PHASE_DRAW, start);
+            reportDrawCounts();
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        long start = startTiming();
+        super.onLayout(changed, l, t, r, b);
+        dividersDirty = true;
+        clearTileCache();
+        endTiming(TableMetricsListener.PHASE_LAYOUT, start);
+    }
+
+    public TableMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    //设置后统计绑定数据、测量、布局、绘制的耗时及绘制的单元格数等，例如LogMetricsListener
+    public void setMetricsListener(TableMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        if (textMeasurer != null) {
+            textMeasurer.counting = metricsListener != null;
+        }
+        drawnCellCount = 0;
+        resetTextMeasureCounts();
+        if (tileCache != null) {
+            reportedTileHits = tileCache.getHitCount();
+            reportedTileMisses = tileCache.getMissCount();
+        }
+    }
+
+    //未设置metricsListener时返回0，不调用System.nanoTime()
+    private long startTiming() {
+        return metricsListener != null ? System.nanoTime() : 0;
+    }
+
+    private void endTiming(int phase, long start) {
+        if (metricsListener != null && start != 0) {
+            metricsListener.onTiming(this, phase, System.nanoTime() - start);
+        }
+    }
+
+    //FreeScrollView滚动后绘制一帧的耗时
+    void onScrollFrameDrawn(long durationNanos) {
+        if (metricsListener != null) {
+            metricsListener.onTiming(this, TableMetricsListener.PHASE_SCROLL_FRAME, durationNanos);
+        }
+    }
+
+    //TableColumn等的调试信息，未设置metricsListener时忽略
+    void dispatchMetricsEvent(String tag, String message) {
+        if (metricsListener != null) {
+            metricsListener.onEvent(this, tag, message);
+        }
+    }
+
+    private void reportDrawCounts() {
+        int textMeasurements = textMeasurer != null ? textMeasurer.measureCount : 0;
+        int textCacheMisses = textMeasurer != null ? textMeasurer.missCount : 0;
+        int tileHits = 0;
+        int tileMisses = 0;
+        if (tileCache != null) {
+            tileHits = (int) (tileCache.getHitCount() - reportedTileHits);
+            tileMisses = (int) (tileCache.getMissCount() - reportedTileMisses);
+            reportedTileHits = tileCache.getHitCount();
+            reportedTileMisses = tileCache.getMissCount();
+        }
+        int cellsDrawn = drawnCellCount;
+        drawnCellCount = 0;
+        resetTextMeasureCounts();
+        metricsListener.onDrawCounts(this, cellsDrawn, textMeasurements, textCacheMisses, tileHits, tileMisses);
+    }
+
+    private void resetTextMeasureCounts() {
+        if (textMeasurer != null) {
+            textMeasurer.measureCount = 0;
+            textMeasurer.missCount = 0;
+        }
+    }
+
+    //只绘制clip范围内的分割线，一次drawLines()完成
+    private void drawDividers(Canvas canvas) {
+        if (!canvas.getClipBounds(drawBounds)) {
+            return;
+        }
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            if (isOverview() || !getViewport(viewport) || !drawBounds.intersect(viewport) || !toTableRect(drawBounds, drawBounds)) {
+                return;
+            }
+        }
+        if (dividersDirty || !drawBounds.equals(dividerBounds)) {
+            dividersDirty = false;
+            dividerBounds.set(drawBounds);
+            buildDividerLines(drawBounds, getWidth() / scale, getHeight() / scale);
+        }
+        //缩小后分割线随之变细
+        int saveCount = canvas.save();
+        canvas.scale(scale, scale);
+        canvas.drawLines(dividerLines, 0, dividerLineCount * 4, dividerPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    //width、height为表格外边框的位置，缩放前的坐标
+    private void buildDividerLines(Rect bounds, float width, float height) {
+        int columnCount = engine.getColumnCount();
+        int rowCount = engine.getRowCount();
+        int firstColumn = Math.max(1, engine.columnAt(bounds.left));
+        int lastColumn = engine.columnAt(bounds.right - 1);
+        lastColumn = lastColumn < 0 ? columnCount - 1 : Math.min(columnCount - 1, lastColumn + 1);
+        int firstRow = Math.max(1, engine.rowAt(bounds.top));
+        int lastRow = engine.rowAt(bounds.bottom - 1);
+        lastRow = lastRow < 0 ? rowCount - 1 : Math.min(rowCount - 1, lastRow + 1);
+        int lineCount = 4 + Math.max(0, lastColumn - firstColumn + 1) + Math.max(0, lastRow - firstRow + 1);
+        if (dividerLines.length < lineCount * 4) {
+            dividerLines = new float[lineCount * 8];
+        }
+        dividerLineCount = 0;
+        float half = tableDividerSize / 2f;
+        //tableDividerSize为1时分割线在偏移量左侧/上侧，否则以偏移量为中心
+        float offset = tableDividerSize > 1 ? 0 : -half;
+        for (int i = firstColumn; i <= lastColumn; i++) {
+            float x = engine.getColumnLeft(i) + offset;
+            addDividerLine(x, bounds.top, x, bounds.bottom);
+        }
+        for (int i = firstRow; i <= lastRow; i++) {
+            float y = engine.getRowTop(i) + offset;
+            addDividerLine(bounds.left, y, bounds.right, y);
+        }
+        addDividerLine(half, bounds.top, half, bounds.bottom);
+        addDividerLine(width - half, bounds.top, width - half, bounds.bottom);
+        addDividerLine(bounds.left, half, bounds.right, half);
+        addDividerLine(bounds.left, height - half, bounds.right, height - half);
+    }
+
+    private void addDividerLine(float startX, float startY, float stopX, float stopY) {
+        int index = dividerLineCount * 4;
+        dividerLines[index] = startX;
+        dividerLines[index + 1] = startY;
+        dividerLines[index + 2] = stopX;
+        dividerLines[index + 3] = stopY;
+        dividerLineCount++;
+    }
+
+    private void drawVisibleCells(Canvas canvas) {
+        int columnCount = engine.getColumnCount();
+        int rowCount = engine.getRowCount();
+        if (widthsPending || columnCount == 0 || rowCount == 0 || !getViewport(viewport)) {
+            return;
+        }
+        if (!toTableRect(viewport, tableViewport)) {
+            return;
+        }
+        //只在绘制时读取可见的页，测量不会触发读取
+        if (adapter instanceof PagedTableAdapter) {
+            int firstRow = Math.max(0, engine.rowAt(tableViewport.top));
+            int lastRow = engine.rowAt(tableViewport.bottom - 1);
+            lastRow = lastRow < 0 ? rowCount - 1 : lastRow;
+            if (sortedAdapter != null) {
+                ((PagedTableAdapter) adapter).onVisibleRowsChanged(sortedAdapter, firstRow, lastRow);
+            } else {
+                ((PagedTableAdapter) adapter).onVisibleRowsChanged(firstRow, lastRow);
+            }
+        }
+        //块缓存按缩放后的坐标划分，缩放过程中比例每帧都在变化，不使用块缓存
+        if (tileCache != null && !zooming) {
+            tileCache.draw(canvas, viewport, tileRenderer);
+        } else {
+            renderViewport(canvas, viewport);
+        }
+    }
+
+    private final TileCache.Renderer tileRenderer = new TileCache.Renderer() {
+        @Override
+        public void renderTile(Canvas canvas, Rect bounds) {
+            renderViewport(canvas, bounds);
+        }
+    };
+
+    //bounds为缩放后的坐标
+    private void renderViewport(Canvas canvas, Rect bounds) {
+        if (isOverview()) {
+            drawOverview(canvas, bounds);
+            return;
+        }
+        if (!toTableRect(bounds, cellBounds)) {
+            return;
+        }
+        int saveCount = canvas.save();
+        canvas.scale(scale, scale);
+        drawCells(canvas, cellBounds, false);
+        canvas.restoreToCount(saveCount);
+    }
+
+    /**
+     * 缩略图：按overviewBlockSize大小的网格取样，每个网格用其左上角所在单元格的颜色填充，比网格大的单元格合并为一个色块
+     * 网格对齐到缩放后坐标的整数倍，不同的块缓存之间色块边界一致
+     */
+    private void drawOverview(Canvas canvas, Rect bounds) {
+        TableCellAdapter displayAdapter = getDisplayAdapter();
+        int block = overviewBlockSize;
+        int x = bounds.left / block * block;
+        while (x < bounds.right) {
+            int column = engine.columnAt(x / scale);
+            if (column < 0) {
+                break;
+            }
+            int nextX = alignToBlock(Math.max(x + block, (int) Math.ceil(engine.getColumnRight(column) * scale)));
+            int y = bounds.top / block * block;
+            while (y < bounds.bottom) {
+                int row = engine.rowAt(y / scale);
+                if (row < 0) {
+                    break;
+                }
+                int nextY = alignToBlock(Math.max(y + block, (int) Math.ceil(engine.getRowBottom(row) * scale)));
+                drawnCellCount++;
+                int color = getOverviewColor(displayAdapter, row, column);
+                if (Color.alpha(color) != 0) {
+                    paint.setColor(color);
+                    canvas.drawRect(x, y, nextX, nextY, paint);
+                }
+                y = nextY;
+            }
+            x = nextX;
+        }
+    }
+
+    private int alignToBlock(int value) {
+        return (value + overviewBlockSize - 1) / overviewBlockSize * overviewBlockSize;
+    }
+
+    //选中的单元格为选中背景色，有样式的为样式的背景色或文字颜色，其余有文字的为半透明的文字颜色
+    private int getOverviewColor(TableCellAdapter displayAdapter, int row, int column) {
+        if (!selection.isEmpty() && selection.isSelected(row, column)) {
+            return Color.alpha(backgroundColorSelected) != 0 ? backgroundColorSelected : tableTextColorSelected;
+        }
+        cellText.setLength(0);
+        displayAdapter.getCell(row, column, cellText);
+        int styleId = getCellStyleId(row, column, cellText);
+        if (styleId != CellStyleRule.NO_STYLE) {
+            CellStyle style = cellStylePalette.get(styleId);
+            if (Color.alpha(style.getBackgroundColor()) != 0) {
+                return style.getBackgroundColor();
+            }
+            if (cellText.length() > 0) {
+                return style.getTextColor();
+            }
+        }
+        return cellText.length() > 0 ? overviewTextColor : Color.TRANSPARENT;
+    }
+
+    /**
+     * 绘制与bounds相交的单元格，bounds的左上角在表格内
+     *
+     * @param exporting 导出时为true，不调整列宽、不跳过折行，也不计入绘制统计和样式缓存
+     */
+    private void drawCells(Canvas canvas, Rect bounds, boolean exporting) {
+        TableCellAdapter displayAdapter = getDisplayAdapter();
+        int columnCount = engine.getColumnCount();
+        int rowCount = engine.getRowCount();
+        int firstColumn = Math.max(0, engine.columnAt(bounds.left));
+        int lastColumn = engine.columnAt(bounds.right - 1);
+        if (lastColumn < 0) {
+            lastColumn = columnCount - 1;
+        }
+        int firstRow = Math.max(0, engine.rowAt(bounds.top));
+        int lastRow = engine.rowAt(bounds.bottom - 1);
+        if (lastRow < 0) {
+            lastRow = rowCount - 1;
+        }
+        //文字基线相对于行垂直中心的偏移
+        float baselineOffset = -(fontMetrics.bottom + fontMetrics.top) / 2;
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            int left = engine.getColumnLeft(column);
+            int right = engine.getColumnRight(column);
+            float x = getTextX(left, right);
+            //最宽的文字都放得下时不需要逐个测量
+            int textWidth = right - left - tableColumnPadding * 2;
+            boolean overflow = engine.getColumnTextWidth(column) > textWidth;
+            for (int row = firstRow; row <= lastRow; row++) {
+                if (!exporting && tableMode == TABLE_MODE_SAMPLED && !flinging && !zooming) {
+                    widenColumn(row, column);
+                }
+                int top = engine.getRowTop(row);
+                int bottom = engine.getRowBottom(row);
+                boolean selected = !selection.isEmpty() && selection.isSelected(row, column);
+                cellText.setLength(0);
+                displayAdapter.getCell(row, column, cellText);
+                int styleId;
+                if (exporting) {
+                    //导出遍历全部单元格，不挤掉屏幕上的样式缓存
+                    styleId = cellStyleRule == null ? CellStyleRule.NO_STYLE : cellStyleRule.getStyle(row, column, cellText);
                 } else {
-                    canvas.drawRect(drawnWidth - tableDividerSize, 0, drawnWidth, getHeight(), paint);
+                    drawnCellCount++;
+                    styleId = getCellStyleId(row, column, cellText);
+                }
+                int backgroundColor = selected ? backgroundColorSelected
+                        : styleId != CellStyleRule.NO_STYLE ? cellStylePalette.get(styleId).getBackgroundColor() : Color.TRANSPARENT;
+                if (Color.alpha(backgroundColor) != 0) {
+                    paint.setColor(backgroundColor);
+                    canvas.drawRect(left, top, right, bottom, paint);
                 }
+                if (cellText.length() == 0) {
+                    continue;
+                }
+                TextPaint cellPaint = textPaint;
+                if (styleId != CellStyleRule.NO_STYLE) {
+                    cellPaint = cellStylePalette.getPaint(styleId, textPaint);
+                }
+                if (selected) {
+                    //选中的单元格使用选中颜色，保留样式的粗体
+                    textPaint.setColor(tableTextColorSelected);
+                    textPaint.setFakeBoldText(cellPaint.isFakeBoldText());
+                    cellPaint = textPaint;
+                } else if (cellPaint == textPaint) {
+                    textPaint.setColor(tableTextColor);
+                    textPaint.setFakeBoldText(false);
+                }
+                if (overflow && measureCellText(cellPaint, exporting) > textWidth) {
+                    drawTextLayout(canvas, cellPaint, textWidth, x, left, top, right, bottom, !exporting && flinging);
+                    continue;
+                }
+                canvas.drawText(cellText, 0, cellText.length(), x, (top + bottom) / 2f + baselineOffset, cellPaint);
             }
-            drawnWidth += column.getWidth();
         }
-        for (int i = 1; i < maxRowCount; i++) {
-            float y = i * tableRowHeight;
-            if (tableDividerSize > 1) {
-                canvas.drawRect(0, y - tableDividerSize / 2, getWidth(), y + tableDividerSize / 2, paint);
-            } else {
-                canvas.drawRect(0, y - tableDividerSize, getWidth(), y, paint);
+    }
+
+    //屏幕上绘制时计入测量统计，导出时不计入
+    private float measureCellText(TextPaint cellPaint, boolean exporting) {
+        if (exporting || textMeasurer == null) {
+            return textWidthCache.measureText(cellPaint, cellText);
+        }
+        return textMeasurer.measureText(cellPaint, cellText, 0, cellText.length());
+    }
+
+    /**
+     * cellText超出列宽，按tableTextOverflow省略或折行后在行内垂直居中绘制
+     *
+     * @param cachedOnly 为true时只使用已缓存的折行结果，未缓存时裁剪为一行绘制，用于滑动期间
+     */
+    private void drawTextLayout(Canvas canvas, TextPaint cellPaint, int textWidth, float x, int left, int top, int right, int bottom, boolean cachedOnly) {
+        float lineHeight = fontMetrics.bottom - fontMetrics.top;
+        int maxLines = tableTextOverflow == TEXT_OVERFLOW_WRAP ? Math.max(1, (int) ((bottom - top) / lineHeight)) : 1;
+        TextLayoutCache.TextLayout layout;
+        if (cachedOnly) {
+            layout = textLayoutCache.getCachedLayout(cellPaint, cellText, Math.max(0, textWidth), maxLines);
+            if (layout == null) {
+                flingTextClipped = true;
+                canvas.save();
+                canvas.clipRect(left + tableColumnPadding, top, right - tableColumnPadding, bottom);
+                canvas.drawText(cellText, 0, cellText.length(), x, (top + bottom) / 2f - (fontMetrics.bottom + fontMetrics.top) / 2, cellPaint);
+                canvas.restore();
+                return;
+            }
+        } else {
+            layout = textLayoutCache.getLayout(cellPaint, cellText, Math.max(0, textWidth), maxLines);
+        }
+        String text = layout.getText();
+        int lineCount = layout.getLineCount();
+        float baseline = (top + bottom) / 2f - lineHeight * lineCount / 2 - fontMetrics.top;
+        for (int line = 0; line < lineCount; line++) {
+            canvas.drawText(text, layout.getLineStart(line), layout.getLineEnd(line), x, baseline, cellPaint);
+            baseline += lineHeight;
+        }
+    }
+
+    //未设置cellStyleRule或不匹配时返回NO_STYLE
+    private int getCellStyleId(int row, int column, CharSequence text) {
+        if (cellStyleRule == null) {
+            return CellStyleRule.NO_STYLE;
+        }
+        int styleId = cellStyleCache.get(row, column);
+        if (styleId == CellStyleCache.NOT_CACHED) {
+            styleId = cellStyleRule.getStyle(row, column, text);
+            cellStyleCache.put(row, column, styleId);
+        }
+        return styleId;
+    }
+
+    public CellStylePalette getCellStylePalette() {
+        return cellStylePalette;
+    }
+
+    //cellStyleRule返回的样式id为palette中的下标
+    public void setCellStylePalette(CellStylePalette cellStylePalette) {
+        this.cellStylePalette = cellStylePalette;
+        onCellStylesChanged();
+    }
+
+    public CellStyleRule getCellStyleRule() {
+        return cellStyleRule;
+    }
+
+    //条件格式，例如CellStyleRules.negative()，为null时全部使用默认样式
+    public void setCellStyleRule(CellStyleRule cellStyleRule) {
+        this.cellStyleRule = cellStyleRule;
+        onCellStylesChanged();
+    }
+
+    //修改了palette中的样式或rule的条件后调用
+    public void onCellStylesChanged() {
+        cellStyleCache.clear();
+        cellStylePalette.clearPaints();
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            clearTileCache();
+            invalidate();
+        } else if (adapter != null) {
+            useAdapter();
+        }
+    }
+
+    //sampled模式下未被测量过的单元格可能比列宽更宽，绘制后再调整列宽
+    private void widenColumn(int row, int column) {
+        if (engine.widenColumn(row, column)) {
+            if (!columnsWidened) {
+                columnsWidened = true;
+                post(applyWidenedColumns);
             }
         }
-        canvas.drawRect(0, 0, tableDividerSize, getHeight(), paint);
-        canvas.drawRect(getWidth() - tableDividerSize, 0, getWidth(), getHeight(), paint);
-        canvas.drawRect(0, 0, getWidth(), tableDividerSize, paint);
-        canvas.drawRect(0, getHeight() - tableDividerSize, getWidth(), getHeight(), paint);
+    }
+
+    private final Runnable applyWidenedColumns = new Runnable() {
+        @Override
+        public void run() {
+            columnsWidened = false;
+            engine.updateColumnOffsets();
+            requestLayout();
+            invalidate();
+        }
+    };
+
+    private float getTextX(int left, int right) {
+        switch (tableTextGravity) {
+            case 1:
+                return left + tableColumnPadding;
+            case 2:
+                return right - tableColumnPadding;
+        }
+        return (left + right) / 2f;
+    }
+
+    //可见区域：父View(FreeScrollView)的滚动窗口与本View的交集，坐标相对于本View
+    private boolean getViewport(Rect out) {
+        ViewParent parent = getParent();
+        if (parent instanceof View) {
+            View parentView = (View) parent;
+            int left = parentView.getScrollX() - getLeft();
+            int top = parentView.getScrollY() - getTop();
+            out.set(left, top, left + parentView.getWidth(), top + parentView.getHeight());
+            return out.intersect(0, 0, getWidth(), getHeight());
+        }
+        out.set(0, 0, getWidth(), getHeight());
+        return !out.isEmpty();
+    }
+
+    //缩放后的坐标换算为engine中的坐标，out可以与viewRect相同，不在表格内返回false
+    private boolean toTableRect(Rect viewRect, Rect out) {
+        if (scale == 1) {
+            out.set(viewRect);
+            return !out.isEmpty();
+        }
+        out.set((int) (viewRect.left / scale), (int) (viewRect.top / scale),
+                (int) Math.ceil(viewRect.right / scale), (int) Math.ceil(viewRect.bottom / scale));
+        return out.intersect(0, 0, engine.getWidth(), engine.getHeight());
+    }
+
+    int getScaledWidth() {
+        return (int) Math.ceil(engine.getWidth() * scale);
+    }
+
+    int getScaledHeight() {
+        return (int) Math.ceil(engine.getHeight() * scale);
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    //只在virtual模式下有效，超出[minScale, maxScale]时取最接近的值，FreeScrollView.zoomTo()可以同时保持缩放中心的位置不变
+    public void setScale(float scale) {
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            return;
+        }
+        scale = Math.max(minScale, Math.min(maxScale, scale));
+        if (this.scale == scale) {
+            return;
+        }
+        this.scale = scale;
+        dividersDirty = true;
+        clearTileCache();
+        requestLayout();
+        invalidate();
+    }
+
+    public float getMinScale() {
+        return minScale;
+    }
+
+    public float getMaxScale() {
+        return maxScale;
+    }
+
+    public void setScaleRange(float minScale, float maxScale) {
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        setScale(scale);
+    }
+
+    public float getTableOverviewScale() {
+        return tableOverviewScale;
+    }
+
+    //缩放比例小于该值时显示缩略图，单元格绘制为色块，不绘制文字和分割线，为0时始终绘制文字
+    public void setTableOverviewScale(float tableOverviewScale) {
+        this.tableOverviewScale = tableOverviewScale;
+        dividersDirty = true;
+        clearTileCache();
+        invalidate();
+    }
+
+    public boolean isOverview() {
+        return scale < tableOverviewScale;
+    }
+
+    //FreeScrollView双指缩放期间为true，不使用块缓存，跳过sampled模式下调整列宽，结束后重新绘制
+    public void setZooming(boolean zooming) {
+        if (this.zooming == zooming) {
+            return;
+        }
+        this.zooming = zooming;
+        if (!zooming && tableRenderMode == RENDER_MODE_VIRTUAL) {
+            clearTileCache();
+            invalidate();
+        }
+    }
+
+    public boolean isZooming() {
+        return zooming;
+    }
+
+    //FreeScrollView惯性滑动或动画滚动期间为true，跳过sampled模式下测量文字、调整列宽以及未缓存的折行，停止后再补上
+    public void setFlinging(boolean flinging) {
+        if (this.flinging == flinging) {
+            return;
+        }
+        this.flinging = flinging;
+        if (!flinging && tableRenderMode == RENDER_MODE_VIRTUAL && (tableMode == TABLE_MODE_SAMPLED || flingTextClipped)) {
+            //滑动期间缓存的块没有调整列宽，或有裁剪绘制的单元格
+            flingTextClipped = false;
+            clearTileCache();
+            invalidate();
+        }
+    }
+
+    public boolean isFlinging() {
+        return flinging;
+    }
+
+    public TileCache getTileCache() {
+        return tileCache;
+    }
+
+    //virtual模式下使用块缓存绘制单元格，传入null不使用
+    public void setTileCache(TileCache tileCache) {
+        if (this.tileCache != null && this.tileCache != tileCache) {
+            this.tileCache.release();
+        }
+        this.tileCache = tileCache;
+        if (tileCache != null) {
+            reportedTileHits = tileCache.getHitCount();
+            reportedTileMisses = tileCache.getMissCount();
+        }
+        clearTileCache();
+        invalidate();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (tileCache != null) {
+            tileCache.release();
+        }
+    }
+
+    //父View滚动后调用，virtual模式下需要重新绘制新的可见区域
+    public void onViewportChanged() {
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            invalidate();
+        }
     }
 
     @Override
@@ -163,6 +916,53 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
         return tableRowHeight;
     }
 
+    public int getRowHeight(int row) {
+        return engine.getRowHeight(row);
+    }
+
+    //单独设置第row行的高度，其余行仍使用tableRowHeight
+    public void setRowHeight(int row, int height) {
+        engine.setRowHeight(row, height);
+        onRowHeightChanged(row);
+    }
+
+    public void clearRowHeight(int row) {
+        engine.clearRowHeight(row);
+        onRowHeightChanged(row);
+    }
+
+    private void onRowHeightChanged(int row) {
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            int childCount = getChildCount();
+            for (int i = 0; i < childCount; i++) {
+                ((TableColumn) getChildAt(i)).setRowHeight(row, engine.getRowHeight(row));
+            }
+        }
+        onColumnWidthsChanged();
+    }
+
+    public int getColumnWidth(int column) {
+        return engine.getColumnWidth(column);
+    }
+
+    //单独设置第column列的宽度(包括左右padding)，不再根据内容计算，只更新该列的偏移量，不重新测量
+    public void setColumnWidth(int column, int width) {
+        engine.setColumnWidth(column, width);
+        onColumnWidthChanged(column);
+    }
+
+    public void clearColumnWidth(int column) {
+        engine.clearColumnWidth(column);
+        onColumnWidthChanged(column);
+    }
+
+    private void onColumnWidthChanged(int column) {
+        if (tableRenderMode != RENDER_MODE_VIRTUAL && column < getChildCount()) {
+            ((TableColumn) getChildAt(column)).setColumnWidth(engine.hasColumnWidth(column) ? engine.getColumnWidth(column) : -1);
+        }
+        onColumnWidthsChanged();
+    }
+
     public int getTableDividerSize() {
         return tableDividerSize;
     }
@@ -195,30 +995,1108 @@ public class TableLayout extends LinearLayout implements TableColumn.Callback {
         return backgroundColorSelected;
     }
 
-    public void setAdapter(TableAdapter adapter) {
-        this.adapter = adapter;
-        useAdapter();
+    public int getTableMaxColumnWidth() {
+        return tableMaxColumnWidth;
     }
 
-    private void useAdapter() {
-        removeAllViews();
-        int count = adapter.getColumnCount();
-        for (int i = 0; i < count; i++) {
-            addView(new TableColumn(getContext(), adapter.getColumnContent(i), this));
+    //根据内容计算的列宽不超过maxColumnWidth(包括左右padding)，超出的文字按tableTextOverflow显示，0表示不限制
+    public void setTableMaxColumnWidth(int tableMaxColumnWidth) {
+        if (this.tableMaxColumnWidth == tableMaxColumnWidth) {
+            return;
         }
+        this.tableMaxColumnWidth = tableMaxColumnWidth;
+        engine.setMaxColumnWidth(tableMaxColumnWidth);
+        onTextOverflowChanged();
     }
 
-    public void onClick(float x, float y) {
-        int childCount = getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            TableColumn tableColumn = (TableColumn) getChildAt(i);
-            if (tableColumn.getRight() >= x) {
-                if (i==0){
-                    return;
-                }
-                tableColumn.onClick(y);
-                return;
-            }
+    public int getTableTextOverflow() {
+        return tableTextOverflow;
+    }
+
+    //TEXT_OVERFLOW_ELLIPSIZE或TEXT_OVERFLOW_WRAP
+    public void setTableTextOverflow(int tableTextOverflow) {
+        if (this.tableTextOverflow == tableTextOverflow) {
+            return;
+        }
+        this.tableTextOverflow = tableTextOverflow;
+        onTextOverflowChanged();
+    }
+
+    private void onTextOverflowChanged() {
+        if (adapter == null) {
+            return;
+        }
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            onColumnWidthsChanged();
+        } else {
+            useAdapter();
+        }
+    }
+
+    public TextLayoutCache getTextLayoutCache() {
+        return textLayoutCache;
+    }
+
+    public void setTextLayoutCache(TextLayoutCache textLayoutCache) {
+        this.textLayoutCache = textLayoutCache;
+        clearTileCache();
+        invalidate();
+    }
+
+    public TextWidthCache getTextWidthCache() {
+        return textWidthCache;
+    }
+
+    public void setTextWidthCache(TextWidthCache textWidthCache) {
+        this.textWidthCache = textWidthCache;
+    }
+
+    public Executor getMeasureExecutor() {
+        return measureExecutor;
+    }
+
+    //设置后virtual模式在executor中测量列宽，adapter需要支持在该线程中读取数据
+    public void setMeasureExecutor(Executor measureExecutor) {
+        this.measureExecutor = measureExecutor;
+    }
+
+    public int getTableSampleRows() {
+        return tableSampleRows;
+    }
+
+    public void setTableMode(int tableMode) {
+        if (this.tableMode == tableMode) {
+            return;
         }
+        this.tableMode = tableMode;
+        if (adapter != null) {
+            useAdapter();
+        }
+    }
+
+    public void setTableSampleRows(int tableSampleRows) {
+        this.tableSampleRows = tableSampleRows;
+    }
+
+    public TableLayoutEngine getLayoutEngine() {
+        return engine;
+    }
+
+    public int getTableRenderMode() {
+        return tableRenderMode;
+    }
+
+    public void setTableRenderMode(int tableRenderMode) {
+        if (this.tableRenderMode == tableRenderMode) {
+            return;
+        }
+        this.tableRenderMode = tableRenderMode;
+        //view模式不支持缩放
+        scale = 1;
+        if (adapter != null) {
+            useAdapter();
+        }
+    }
+
+    public TableCellAdapter getAdapter() {
+        return adapter;
+    }
+
+    public void setAdapter(TableAdapter adapter) {
+        setAdapter(new TableAdapterBridge(adapter));
+    }
+
+    public void setAdapter(TableCellAdapter adapter) {
+        replaceAdapter(adapter);
+        diffGeneration++;
+        sortedAdapter = null;
+        rowComparator = null;
+        rowFilter = null;
+        sortGeneration++;
+        sortRunning = false;
+        rowOrderUpdatePending = false;
+        unmeasuredRowsStart = unmeasuredRowsEnd = 0;
+        selection.clear();
+        engine.clearRowHeights();
+        engine.clearColumnWidths();
+        useAdapter();
+    }
+
+    private void replaceAdapter(TableCellAdapter adapter) {
+        if (this.adapter instanceof PagedTableAdapter) {
+            ((PagedTableAdapter) this.adapter).removeListener(pageListener);
+        }
+        if (adapter instanceof PagedTableAdapter) {
+            ((PagedTableAdapter) adapter).addListener(pageListener);
+        }
+        this.adapter = adapter;
+    }
+
+    public Executor getDiffExecutor() {
+        return diffExecutor;
+    }
+
+    //设置后submitData()在executor中比较新旧数据，新旧adapter都需要支持在该线程中读取数据
+    public void setDiffExecutor(Executor diffExecutor) {
+        this.diffExecutor = diffExecutor;
+    }
+
+    public void submitData(TableAdapter adapter) {
+        submitData(new TableAdapterBridge(adapter), null);
+    }
+
+    public void submitData(TableCellAdapter adapter) {
+        submitData(adapter, null);
+    }
+
+    /**
+     * 换成新的数据，与当前数据比较后只更新插入、删除的行和变化的单元格，保留滚动位置、选中状态、排序和筛选
+     * 比较期间当前的adapter和新的adapter都不能被修改，差异太大时重新测量全部数据
+     *
+     * @param rowKey 新旧数据中key相同的行被视为同一行，为null时以整行内容作为key
+     */
+    public void submitData(final TableCellAdapter newAdapter, final TableDiff.RowKey rowKey) {
+        final TableCellAdapter oldAdapter = adapter;
+        if (oldAdapter == null) {
+            setAdapter(newAdapter);
+            return;
+        }
+        final int generation = ++diffGeneration;
+        final Executor executor = diffExecutor;
+        if (executor == null) {
+            applyDiff(newAdapter, TableDiff.compute(oldAdapter, newAdapter, rowKey));
+            return;
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final TableDiff diff = TableDiff.compute(oldAdapter, newAdapter, rowKey);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != diffGeneration) {
+                            return;
+                        }
+                        if (adapter != oldAdapter) {
+                            submitData(newAdapter, rowKey);
+                        } else {
+                            applyDiff(newAdapter, diff);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyDiff(TableCellAdapter newAdapter, TableDiff diff) {
+        //差异太大时重新测量
+        if (diff == null) {
+            replaceAdapter(newAdapter);
+            notifyDataSetChanged();
+            return;
+        }
+        //排序、筛选后显示的位置不连续，选中的行先按diff移动到新数据中的行号，再重新排序
+        if (sortedAdapter != null) {
+            int[] rowMap = diff.getRowMap(sortedAdapter.getAdapter().getRowCount());
+            int[] oldRows = sortedAdapter.getRows();
+            int oldRowCount = sortedAdapter.getRowCount();
+            int[] movedRows = new int[oldRowCount];
+            for (int row = 0; row < oldRowCount; row++) {
+                movedRows[row] = rowMap[oldRows == null ? row : oldRows[row]];
+            }
+            replaceAdapter(newAdapter);
+            invalidateBridge();
+            resetRowOrder(movedRows, oldRowCount);
+            return;
+        }
+        replaceAdapter(newAdapter);
+        invalidateBridge();
+        cellStyleCache.clear();
+        int operationCount = diff.getOperationCount();
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            //依次插入、删除TextView再移动选中的行，最后更新变化的单元格
+            for (int i = 0; i < operationCount; i++) {
+                int position = diff.getOperationPosition(i);
+                int count = diff.getOperationCount(i);
+                if (diff.getOperationType(i) == TableDiff.INSERT) {
+                    insertViewRows(position, count);
+                    selection.onRowsInserted(position, count);
+                } else {
+                    removeViewRows(position, count);
+                    selection.onRowsRemoved(position, count);
+                }
+            }
+            int changedCellCount = diff.getChangedCellCount();
+            for (int i = 0; i < changedCellCount; i++) {
+                int column = diff.getChangedColumn(i);
+                updateViewRows(diff.getChangedRow(i), 1, column, column + 1);
+            }
+            return;
+        }
+        for (int i = 0; i < operationCount; i++) {
+            if (diff.getOperationType(i) == TableDiff.INSERT) {
+                selection.onRowsInserted(diff.getOperationPosition(i), diff.getOperationCount(i));
+            } else {
+                selection.onRowsRemoved(diff.getOperationPosition(i), diff.getOperationCount(i));
+            }
+        }
+        if (remeasureIfPending()) {
+            return;
+        }
+        long start = startTiming();
+        engine.applyDiff(newAdapter, diff);
+        endTiming(TableMetricsListener.PHASE_BIND, start);
+        if (!diff.isEmpty()) {
+            onColumnWidthsChanged();
+        }
+    }
+
+    //PagedTableAdapter读取完一页后重新测量、绘制这些行
+    private final PagedTableAdapter.Listener pageListener = new PagedTableAdapter.Listener() {
+        @Override
+        public void onRowsLoaded(PagedTableAdapter adapter, int positionStart, int itemCount) {
+            if (adapter == TableLayout.this.adapter) {
+                notifyRowRangeChanged(positionStart, itemCount);
+            }
+        }
+    };
+
+    public TableSelection getSelection() {
+        return selection;
+    }
+
+    private TableCellAdapter getDisplayAdapter() {
+        return sortedAdapter != null ? sortedAdapter : adapter;
+    }
+
+    public Executor getSortExecutor() {
+        return sortExecutor;
+    }
+
+    //设置后排序、筛选在executor中进行，行数较多时分段并行排序，adapter需要支持在这些线程中读取数据
+    public void setSortExecutor(Executor sortExecutor) {
+        this.sortExecutor = sortExecutor;
+    }
+
+    public RowComparator getRowComparator() {
+        return rowComparator;
+    }
+
+    //按comparator排序，第0行(标题)始终在最前面，传入null恢复原来的顺序
+    public void setRowComparator(RowComparator rowComparator) {
+        this.rowComparator = rowComparator;
+        updateRowOrder(true);
+    }
+
+    public RowFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    //只显示filter接受的行，第0行(标题)始终显示，传入null显示全部行
+    public void setRowFilter(RowFilter rowFilter) {
+        this.rowFilter = rowFilter;
+        updateRowOrder(true);
+    }
+
+    //显示的第row行在adapter中的行号，cellAt()、getSelection()使用显示的行号
+    public int getSourceRow(int row) {
+        return sortedAdapter == null ? row : sortedAdapter.getSourceRow(row);
+    }
+
+    //adapter中的第sourceRow行显示的位置，被筛选掉返回-1
+    public int getDisplayRow(int sourceRow) {
+        return sortedAdapter == null ? sourceRow : sortedAdapter.getRow(sourceRow);
+    }
+
+    /**
+     * 重新计算排序、筛选后的行顺序，完成后整体替换
+     *
+     * @param restart 排序条件变化时为true，丢弃正在进行的排序；数据变化时为false，等正在进行的排序完成后再排一次
+     */
+    private void updateRowOrder(boolean restart) {
+        rowOrderUpdatePending = false;
+        if (adapter == null) {
+            return;
+        }
+        if (restart) {
+            sortGeneration++;
+            sortRunning = false;
+            sortDirty = false;
+        }
+        if (rowComparator == null && rowFilter == null) {
+            if (sortedAdapter != null) {
+                int[] oldRows = sortedAdapter.getRows();
+                int oldRowCount = sortedAdapter.getRowCount();
+                sortedAdapter = null;
+                remapSelection(oldRows, oldRowCount);
+                onRowOrderChanged();
+            }
+            return;
+        }
+        if (sortRunning) {
+            sortDirty = true;
+            return;
+        }
+        final TableCellAdapter source = adapter;
+        final RowComparator comparator = rowComparator;
+        final RowFilter filter = rowFilter;
+        final Executor executor = sortExecutor;
+        if (executor == null) {
+            int[] rows = RowSorter.sortRows(source, comparator, filter, null, 1);
+            applyRowOrder(rows, RowSorter.inverse(rows, source.getRowCount()));
+            return;
+        }
+        final int generation = ++sortGeneration;
+        final int sourceRowCount = source.getRowCount();
+        sortRunning = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[] rows = RowSorter.sortRows(source, comparator, filter, executor, Runtime.getRuntime().availableProcessors());
+                final int[] inverse = RowSorter.inverse(rows, sourceRowCount);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != sortGeneration) {
+                            return;
+                        }
+                        sortRunning = false;
+                        //排序期间行数变化了，结果中的行号可能已经超出范围
+                        if (source.getRowCount() == sourceRowCount) {
+                            applyRowOrder(rows, inverse);
+                        } else {
+                            sortDirty = true;
+                        }
+                        if (sortDirty) {
+                            sortDirty = false;
+                            updateRowOrder(false);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    //数据变化后在下一次消息循环中重新排序，例如一次写入多个单元格的更新只排序一次
+    private void postRowOrderUpdate() {
+        if (!rowOrderUpdatePending) {
+            rowOrderUpdatePending = true;
+            mainHandler.post(rowOrderUpdate);
+        }
+    }
+
+    private final Runnable rowOrderUpdate = new Runnable() {
+        @Override
+        public void run() {
+            if (rowOrderUpdatePending) {
+                updateRowOrder(false);
+            }
+        }
+    };
+
+    //第column列的数据变化后是否需要重新排序、筛选
+    private boolean isRowOrderColumn(int column) {
+        return RowSorter.dependsOnColumn(rowComparator, column) || RowSorter.dependsOnColumn(rowFilter, column);
+    }
+
+    private void applyRowOrder(int[] rows, int[] inverse) {
+        if (sortedAdapter == null) {
+            sortedAdapter = new SortedTableAdapter(adapter);
+        }
+        int[] oldRows = sortedAdapter.getRows();
+        int oldRowCount = sortedAdapter.getRowCount();
+        sortedAdapter.setRows(rows, inverse);
+        remapSelection(oldRows, oldRowCount);
+        onRowOrderChanged();
+    }
+
+    /**
+     * 行的顺序变化后，选中的行按adapter中的行号移动到新的显示位置，在sortedAdapter更新之后调用
+     *
+     * @param oldRows 变化前显示的每一行在adapter中的行号，为null时与adapter的顺序相同，-1表示该行已被删除
+     */
+    private void remapSelection(int[] oldRows, int oldRowCount) {
+        if (selection.isEmpty()) {
+            return;
+        }
+        int sourceRowCount = adapter.getRowCount();
+        int[] rowMap = new int[oldRowCount];
+        for (int row = 0; row < oldRowCount; row++) {
+            int sourceRow = oldRows == null ? row : oldRows[row];
+            rowMap[row] = sourceRow >= 0 && sourceRow < sourceRowCount ? getDisplayRow(sourceRow) : -1;
+        }
+        selection.onRowsMoved(rowMap);
+    }
+
+    //行的顺序或数量变化，内容没有变化，保留列宽
+    private void onRowOrderChanged() {
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            useAdapter();
+            return;
+        }
+        cellStyleCache.clear();
+        if (remeasureIfPending()) {
+            return;
+        }
+        engine.swapAdapter(getDisplayAdapter());
+        if (unmeasuredRowsStart < unmeasuredRowsEnd) {
+            int start = unmeasuredRowsStart;
+            int end = Math.min(unmeasuredRowsEnd, adapter.getRowCount());
+            unmeasuredRowsStart = unmeasuredRowsEnd = 0;
+            measureSourceRows(start, end);
+        }
+        onColumnWidthsChanged();
+    }
+
+    //测量adapter中[start, end)行当前显示的位置，未显示的行记录下来，重新排序后再测量，返回列宽是否改变
+    private boolean measureSourceRows(int start, int end) {
+        boolean changed = false;
+        for (int row = start; row < end; row++) {
+            int displayRow = getDisplayRow(row);
+            if (displayRow >= 0) {
+                changed |= engine.notifyRowRangeChanged(displayRow, 1);
+            } else if (unmeasuredRowsStart == unmeasuredRowsEnd) {
+                unmeasuredRowsStart = row;
+                unmeasuredRowsEnd = row + 1;
+            } else {
+                unmeasuredRowsStart = Math.min(unmeasuredRowsStart, row);
+                unmeasuredRowsEnd = Math.max(unmeasuredRowsEnd, row + 1);
+            }
+        }
+        return changed;
+    }
+
+    private static int shiftInserted(int row, int positionStart, int itemCount) {
+        return row >= positionStart ? row + itemCount : row;
+    }
+
+    private static int shiftRemoved(int row, int positionStart, int itemCount) {
+        if (row < positionStart) {
+            return row;
+        }
+        return row < positionStart + itemCount ? positionStart : row - itemCount;
+    }
+
+    private void useAdapter() {
+        long start = startTiming();
+        bindAdapter();
+        endTiming(TableMetricsListener.PHASE_BIND, start);
+    }
+
+    private void bindAdapter() {
+        removeAllViews();
+        cellStyleCache.clear();
+        if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+            useAdapterVirtual();
+            return;
+        }
+        int columnCount = adapter.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            addView(newTableColumn(i));
+        }
+        applySelection();
+    }
+
+    //view模式下将选中状态同步到TextView
+    private void applySelection() {
+        applySelection(0, 0, TableSelection.END, TableSelection.END);
+    }
+
+    private void applySelection(int column) {
+        applySelection(0, column, TableSelection.END, column + 1);
+    }
+
+    //只同步[top, bottom) x [left, right)范围内的TextView
+    private void applySelection(int top, int left, int bottom, int right) {
+        int columnEnd = Math.min(right, getChildCount());
+        for (int column = left; column < columnEnd; column++) {
+            TableColumn tableColumn = (TableColumn) getChildAt(column);
+            int rowEnd = Math.min(bottom, tableColumn.getChildCount());
+            for (int row = top; row < rowEnd; row++) {
+                tableColumn.setRowSelected(row, selection.isSelected(row, column));
+            }
+        }
+    }
+
+    private final TableSelection.Listener selectionListener = new TableSelection.Listener() {
+        @Override
+        public void onSelectionChanged(TableSelection selection, int top, int left, int bottom, int right) {
+            if (tableRenderMode == RENDER_MODE_VIRTUAL) {
+                invalidateCells(top, left, bottom, right);
+            } else {
+                applySelection(top, left, bottom, right);
+            }
+        }
+    };
+
+    private TableColumn newTableColumn(int column) {
+        String[] content = getColumnContent(column);
+        TableColumn tableColumn = new TableColumn(getContext(), content, this);
+        if (engine.hasColumnWidth(column)) {
+            tableColumn.setColumnWidth(engine.getColumnWidth(column));
+        }
+        if (cellStyleRule != null) {
+            for (int row = 0; row < content.length; row++) {
+                applyRowStyle(tableColumn, row, column, content[row]);
+            }
+        }
+        return tableColumn;
+    }
+
+    private void applyRowStyle(TableColumn tableColumn, int row, int column, String text) {
+        if (cellStyleRule == null) {
+            return;
+        }
+        int styleId = cellStyleRule.getStyle(row, column, text == null ? "" : text);
+        tableColumn.setRowStyle(row, styleId == CellStyleRule.NO_STYLE ? null : cellStylePalette.get(styleId));
+    }
+
+    private String getCellText(int row, int column) {
+        cellText.setLength(0);
+        getDisplayAdapter().getCell(row, column, cellText);
+        return cellText.toString();
+    }
+
+    //view模式下只更新[positionStart, positionStart + itemCount)行的TextView
+    private void updateViewRows(int positionStart, int itemCount, int left, int right) {
+        int columnEnd = Math.min(right, getChildCount());
+        for (int column = left; column < columnEnd; column++) {
+            TableColumn tableColumn = (TableColumn) getChildAt(column);
+            for (int row = positionStart; row < positionStart + itemCount; row++) {
+                String text = getCellText(row, column);
+                tableColumn.setRowText(row, text);
+                applyRowStyle(tableColumn, row, column, text);
+            }
+        }
+    }
+
+    //view模式下只为插入的行创建TextView
+    private void insertViewRows(int positionStart, int itemCount) {
+        int childCount = getChildCount();
+        String[] texts = new String[itemCount];
+        for (int column = 0; column < childCount; column++) {
+            TableColumn tableColumn = (TableColumn) getChildAt(column);
+            for (int i = 0; i < itemCount; i++) {
+                texts[i] = getCellText(positionStart + i, column);
+            }
+            tableColumn.insertRows(positionStart, texts);
+            for (int i = 0; i < itemCount; i++) {
+                applyRowStyle(tableColumn, positionStart + i, column, texts[i]);
+            }
+        }
+    }
+
+    private void removeViewRows(int positionStart, int itemCount) {
+        int childCount = getChildCount();
+        for (int column = 0; column < childCount; column++) {
+            ((TableColumn) getChildAt(column)).removeRows(positionStart, itemCount);
+        }
+    }
+
+    //view模式下TableColumn需要整列的内容
+    private String[] getColumnContent(int column) {
+        if (sortedAdapter == null && adapter instanceof TableAdapterBridge) {
+            return ((TableAdapterBridge) adapter).getColumnContent(column);
+        }
+        TableCellAdapter displayAdapter = getDisplayAdapter();
+        String[] content = new String[displayAdapter.getRowCount()];
+        for (int row = 0; row < content.length; row++) {
+            cellText.setLength(0);
+            displayAdapter.getCell(row, column, cellText);
+            content[row] = cellText.toString();
+        }
+        return content;
+    }
+
+    private void useAdapterVirtual() {
+        clearTileCache();
+        engine.setWidthMode(tableMode == TABLE_MODE_SAMPLED ? TableLayoutEngine.WIDTH_MODE_SAMPLED : TableLayoutEngine.WIDTH_MODE_AUTO);
+        engine.setSampleRows(tableSampleRows);
+        textMeasurer = new PaintTextMeasurer(textPaint, textWidthCache);
+        textMeasurer.counting = metricsListener != null;
+        engine.setAdapter(getDisplayAdapter(), textMeasurer);
+        final int generation = ++measureGeneration;
+        if (measureExecutor != null) {
+            widthsPending = true;
+            measureAsync(generation);
+        } else {
+            widthsPending = false;
+            engine.measure();
+        }
+        requestLayout();
+        invalidate();
+    }
+
+    private void measureAsync(final int generation) {
+        final int columnCount = engine.getColumnCount();
+        final int rowCount = engine.getRowCount();
+        //Paint不是线程安全的，后台测量使用单独的副本
+        final ColumnMeasurer measurer = engine.newColumnMeasurer(new PaintTextMeasurer(new TextPaint(textPaint), textWidthCache));
+        measureExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final float[] textWidths = new float[columnCount];
+                final int[] widest = new int[columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    measurer.measureColumn(column, rowCount, textWidths, widest);
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != measureGeneration) {
+                            return;
+                        }
+                        widthsPending = false;
+                        engine.setColumnTextWidths(textWidths, widest);
+                        requestLayout();
+                        invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    private void onColumnWidthsChanged() {
+        clearTileCache();
+        requestLayout();
+        invalidate();
+    }
+
+    //重新绘制[top, bottom) x [left, right)范围内的单元格
+    private void invalidateCells(int top, int left, int bottom, int right) {
+        bottom = Math.min(bottom, engine.getRowCount());
+        right = Math.min(right, engine.getColumnCount());
+        if (top >= bottom || left >= right) {
+            return;
+        }
+        int l = (int) (engine.getColumnLeft(left) * scale);
+        int t = (int) (engine.getRowTop(top) * scale);
+        int r = (int) Math.ceil(engine.getColumnLeft(right) * scale);
+        int b = (int) Math.ceil(engine.getRowTop(bottom) * scale);
+        if (isOverview()) {
+            //色块对齐到网格，可能超出单元格的范围
+            l -= overviewBlockSize;
+            t -= overviewBlockSize;
+            r += overviewBlockSize;
+            b += overviewBlockSize;
+        }
+        if (tileCache != null) {
+            tileCache.invalidate(l, t, r, b);
+        }
+        invalidate(l, t, r, b);
+    }
+
+    private void clearTileCache() {
+        if (tileCache != null) {
+            tileCache.clear();
+        }
+    }
+
+    //数据全部变化，等同于重新设置adapter
+    public void notifyDataSetChanged() {
+        invalidateBridge();
+        if (sortedAdapter != null) {
+            resetRowOrder(sortedAdapter.getRows(), sortedAdapter.getRowCount());
+            return;
+        }
+        useAdapter();
+    }
+
+    //原来的行号可能已经超出范围，先按原始顺序显示，排序完成后再替换，oldRows中为选中的行在adapter中的新行号
+    private void resetRowOrder(int[] oldRows, int oldRowCount) {
+        sortedAdapter = null;
+        remapSelection(oldRows, oldRowCount);
+        useAdapter();
+        updateRowOrder(false);
+    }
+
+    //第row行第column列的数据发生变化，只重新测量该单元格，排序、筛选后row仍是adapter中的行号
+    public void notifyCellChanged(int row, int column) {
+        invalidateBridgeColumn(column);
+        if (sortedAdapter != null) {
+            int displayRow = sortedAdapter.getRow(row);
+            if (displayRow >= 0) {
+                onCellChanged(displayRow, column);
+            }
+            if (isRowOrderColumn(column)) {
+                postRowOrderUpdate();
+            }
+            return;
+        }
+        onCellChanged(row, column);
+    }
+
+    private void onCellChanged(int row, int column) {
+        cellStyleCache.invalidateCell(row, column);
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            updateViewRows(row, 1, column, column + 1);
+            return;
+        }
+        if (remeasureIfPending()) {
+            return;
+        }
+        if (engine.notifyCellChanged(row, column)) {
+            onColumnWidthsChanged();
+        } else {
+            invalidateCells(row, column, row + 1, column + 1);
+        }
+    }
+
+    //从positionStart开始的itemCount行数据发生变化，只重新测量这些行
+    public void notifyRowRangeChanged(int positionStart, int itemCount) {
+        invalidateBridge();
+        if (sortedAdapter != null) {
+            cellStyleCache.clear();
+            //这些行显示的位置不连续，逐行测量显示的位置，重新排序后整体替换
+            if (tableRenderMode == RENDER_MODE_VIRTUAL && !remeasureIfPending()) {
+                if (measureSourceRows(positionStart, positionStart + itemCount)) {
+                    onColumnWidthsChanged();
+                }
+            }
+            postRowOrderUpdate();
+            clearTileCache();
+            invalidate();
+            return;
+        }
+        cellStyleCache.invalidate(positionStart, 0, positionStart + itemCount, Integer.MAX_VALUE);
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            updateViewRows(positionStart, itemCount, 0, getChildCount());
+            return;
+        }
+        if (remeasureIfPending()) {
+            return;
+        }
+        if (engine.notifyRowRangeChanged(positionStart, itemCount)) {
+            onColumnWidthsChanged();
+        } else {
+            invalidateCells(positionStart, 0, positionStart + itemCount, engine.getColumnCount());
+        }
+    }
+
+    //第column列的数据全部发生变化
+    public void notifyColumnChanged(int column) {
+        invalidateBridgeColumn(column);
+        cellStyleCache.invalidate(0, column, Integer.MAX_VALUE, column + 1);
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            replaceColumn(column);
+        } else if (!remeasureIfPending()) {
+            if (engine.notifyColumnChanged(column)) {
+                onColumnWidthsChanged();
+            } else {
+                invalidateCells(0, column, engine.getRowCount(), column + 1);
+            }
+        }
+        if (sortedAdapter != null && isRowOrderColumn(column)) {
+            postRowOrderUpdate();
+        }
+    }
+
+    //在positionStart处插入了itemCount行，只测量新插入的行，排序、筛选后新的行先显示在最后，等待重新排序
+    public void notifyRowRangeInserted(int positionStart, int itemCount) {
+        invalidateBridge();
+        if (sortedAdapter != null) {
+            int displayStart = sortedAdapter.getRowCount();
+            unmeasuredRowsStart = shiftInserted(unmeasuredRowsStart, positionStart, itemCount);
+            unmeasuredRowsEnd = shiftInserted(unmeasuredRowsEnd, positionStart, itemCount);
+            sortedAdapter.onSourceRowsInserted(positionStart, itemCount);
+            onRowRangeInserted(displayStart, itemCount);
+            postRowOrderUpdate();
+            return;
+        }
+        onRowRangeInserted(positionStart, itemCount);
+    }
+
+    private void onRowRangeInserted(int positionStart, int itemCount) {
+        cellStyleCache.clear();
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            //先插入TextView再移动选中的行，之后的TextView的选中状态跟随移动
+            insertViewRows(positionStart, itemCount);
+            selection.onRowsInserted(positionStart, itemCount);
+            return;
+        }
+        selection.onRowsInserted(positionStart, itemCount);
+        if (remeasureIfPending()) {
+            return;
+        }
+        engine.notifyRowRangeInserted(positionStart, itemCount);
+        onColumnWidthsChanged();
+    }
+
+    //从positionStart处删除了itemCount行，只有最宽单元格被删除的列才需要重新测量
+    public void notifyRowRangeRemoved(int positionStart, int itemCount) {
+        invalidateBridge();
+        if (sortedAdapter != null) {
+            //被删除的行显示的位置不连续，保留列宽直接替换
+            int[] oldRows = sortedAdapter.getRows();
+            int oldRowCount = sortedAdapter.getRowCount();
+            if (oldRows != null) {
+                oldRows = oldRows.clone();
+                for (int i = 0; i < oldRows.length; i++) {
+                    int sourceRow = oldRows[i];
+                    if (sourceRow >= positionStart + itemCount) {
+                        oldRows[i] = sourceRow - itemCount;
+                    } else if (sourceRow >= positionStart) {
+                        oldRows[i] = -1;
+                    }
+                }
+            }
+            unmeasuredRowsStart = shiftRemoved(unmeasuredRowsStart, positionStart, itemCount);
+            unmeasuredRowsEnd = shiftRemoved(unmeasuredRowsEnd, positionStart, itemCount);
+            sortedAdapter.onSourceRowsRemoved(positionStart, itemCount);
+            if (oldRows == null) {
+                selection.onRowsRemoved(positionStart, itemCount);
+            } else {
+                remapSelection(oldRows, oldRowCount);
+            }
+            //删除不改变其余行的顺序，不需要重新排序；正在进行的排序完成时行数不同，会再排一次
+            onRowOrderChanged();
+            return;
+        }
+        cellStyleCache.clear();
+        if (tableRenderMode != RENDER_MODE_VIRTUAL) {
+            removeViewRows(positionStart, itemCount);
+            selection.onRowsRemoved(positionStart, itemCount);
+            return;
+        }
+        selection.onRowsRemoved(positionStart, itemCount);
+        if (remeasureIfPending()) {
+            return;
+        }
+        engine.notifyRowRangeRemoved(positionStart, itemCount);
+        onColumnWidthsChanged();
+    }
+
+    //后台测量尚未完成时数据又发生了变化，测量结果已过时，直接重新测量
+    private boolean remeasureIfPending() {
+        if (widthsPending) {
+            useAdapterVirtual();
+            return true;
+        }
+        return false;
+    }
+
+    //任意线程都可以调用，更新会在下一帧统一写入MutableTableCellAdapter，队列已满时返回false
+    public boolean postCellUpdate(int row, int column, CharSequence value) {
+        if (!updateQueue.offer(row, column, value)) {
+            return false;
+        }
+        if (updateScheduled.compareAndSet(false, true)) {
+            mainHandler.post(scheduleUpdates);
+        }
+        return true;
+    }
+
+    public TableUpdateQueue getUpdateQueue() {
+        return updateQueue;
+    }
+
+    private final Runnable scheduleUpdates = new Runnable() {
+        @Override
+        public void run() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                if (updateFrameCallback == null) {
+                    updateFrameCallback = new Choreographer.FrameCallback() {
+                        @Override
+                        public void doFrame(long frameTimeNanos) {
+                            applyPendingUpdates();
+                        }
+                    };
+                }
+                Choreographer.getInstance().postFrameCallback(updateFrameCallback);
+            } else {
+                applyPendingUpdates();
+            }
+        }
+    };
+
+    private void applyPendingUpdates() {
+        //先清除标记，应用过程中新提交的更新会安排到下一帧
+        updateScheduled.set(false);
+        updateQueue.drain(updateApplier);
+    }
+
+    private final TableUpdateQueue.Applier updateApplier = new TableUpdateQueue.Applier() {
+        @Override
+        public boolean apply(int row, int column, CharSequence value) {
+            if (!(adapter instanceof MutableTableCellAdapter) || row < 0 || row >= adapter.getRowCount() || column < 0 || column >= adapter.getColumnCount()) {
+                return false;
+            }
+            try {
+                ((MutableTableCellAdapter) adapter).setCell(row, column, value);
+            } catch (IllegalArgumentException e) {
+                //在帧回调中抛出会使应用崩溃，丢弃这一个更新
+                dispatchMetricsEvent("update", "dropped " + row + "," + column + ": " + e.getMessage());
+                return false;
+            }
+            notifyCellChanged(row, column);
+            return true;
+        }
+    };
+
+    //旧的TableAdapter每列的内容被TableAdapterBridge缓存，数据变化后需要重新获取
+    private void invalidateBridgeColumn(int column) {
+        if (adapter instanceof TableAdapterBridge) {
+            ((TableAdapterBridge) adapter).invalidateColumn(column);
+        }
+    }
+
+    private void invalidateBridge() {
+        if (adapter instanceof TableAdapterBridge) {
+            ((TableAdapterBridge) adapter).invalidate();
+        }
+    }
+
+    //view模式下只重新创建第column列
+    private void replaceColumn(int column) {
+        removeViewAt(column);
+        addView(newTableColumn(column), column);
+        applySelection(column);
+    }
+
+    /**
+     * 按当前的排序、筛选导出为CSV，在当前线程中写入，写入后flush，不关闭out
+     *
+     * @param selectedOnly 为true且有选中的单元格时只导出选中单元格所在的行、列，第0行(标题)始终导出
+     * @return 写入的行数
+     */
+    public int exportCsv(OutputStream out, boolean selectedOnly) throws IOException {
+        checkExportable();
+        return new TableCsvWriter().write(getDisplayAdapter(), selectedOnly ? selection : null, out);
+    }
+
+    //在executor中导出CSV，使用调用时的排序、筛选和选中状态，导出期间adapter不能被修改，完成后在UI线程通知callback
+    public void exportCsv(final OutputStream out, boolean selectedOnly, Executor executor, final ExportCallback callback) {
+        checkExportable();
+        TableCellAdapter source = adapter;
+        if (sortedAdapter != null) {
+            //行顺序数组不会被修改，只会被替换，可以直接共用
+            SortedTableAdapter snapshot = new SortedTableAdapter(adapter);
+            snapshot.setRows(sortedAdapter.getRows(), null);
+            source = snapshot;
+        }
+        final TableCellAdapter exportAdapter = source;
+        final TableSelection exportSelection = selectedOnly && !selection.isEmpty() ? copySelection() : null;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int rowCount = 0;
+                IOException error = null;
+                try {
+                    rowCount = new TableCsvWriter().write(exportAdapter, exportSelection, out);
+                } catch (IOException e) {
+                    error = e;
+                }
+                final int exportedRowCount = rowCount;
+                final IOException exportError = error;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (exportError != null) {
+                            callback.onExportFailed(exportError);
+                        } else {
+                            callback.onExportFinished(exportedRowCount);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private TableSelection copySelection() {
+        TableSelection copy = new TableSelection();
+        int[] range = new int[4];
+        int rangeCount = selection.getRangeCount();
+        for (int i = 0; i < rangeCount; i++) {
+            selection.getRange(i, range);
+            copy.select(range[0], range[1], range[2], range[3]);
+        }
+        return copy;
+    }
+
+    public void exportImage(OutputStream out, int backgroundColor) throws IOException {
+        exportImage(out, backgroundColor, DEFAULT_EXPORT_BAND_BYTES);
+    }
+
+    /**
+     * 将整个表格按缩放前的大小导出为PNG，包括当前的排序、筛选、样式和选中状态，view模式下也不使用TextView
+     * 每次只绘制高度不超过maxBandBytes的一条，逐行压缩写入后再绘制下一条，占用内存与表格的行数无关
+     * 在UI线程中调用，写入后flush，不关闭out
+     */
+    public void exportImage(OutputStream out, int backgroundColor, long maxBandBytes) throws IOException {
+        checkExportable();
+        int width = engine.getWidth();
+        int height = engine.getHeight();
+        if (widthsPending || width <= 0 || height <= 0) {
+            throw new IllegalStateException("table not measured");
+        }
+        int bandHeight = (int) Math.max(1, Math.min(height, maxBandBytes / (width * 4L)));
+        Bitmap band = Bitmap.createBitmap(width, bandHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(band);
+        Rect bounds = new Rect();
+        int[] pixels = new int[width];
+        long start = startTiming();
+        try {
+            PngWriter writer = new PngWriter(out, width, height, Color.alpha(backgroundColor) == 255);
+            for (int top = 0; top < height; top += bandHeight) {
+                int bottom = Math.min(height, top + bandHeight);
+                band.eraseColor(backgroundColor);
+                int saveCount = canvas.save();
+                canvas.translate(0, -top);
+                bounds.set(0, top, width, bottom);
+                drawCells(canvas, bounds, true);
+                buildDividerLines(bounds, width, height);
+                canvas.drawLines(dividerLines, 0, dividerLineCount * 4, dividerPaint);
+                canvas.restoreToCount(saveCount);
+                for (int y = 0; y < bottom - top; y++) {
+                    band.getPixels(pixels, 0, width, 0, y, width, 1);
+                    writer.writeRow(pixels, 0);
+                }
+            }
+            writer.finish();
+        } finally {
+            band.recycle();
+            //分割线缓存被导出覆盖了
+            dividersDirty = true;
+            if (metricsListener != null) {
+                dispatchMetricsEvent("export", "image " + width + "x" + height + " in " + (System.nanoTime() - start) / 1000000 + "ms");
+            }
+        }
+    }
+
+    private void checkExportable() {
+        if (adapter == null) {
+            throw new IllegalStateException("no adapter");
+        }
+    }
+
+    /**
+     * 获取(x, y)所在的单元格，坐标相对于TableLayout，缩放后的坐标
+     *
+     * @param outCell outCell[0]为行，outCell[1]为列
+     * @return 不在表格内返回false
+     */
+    public boolean cellAt(float x, float y, int[] outCell) {
+        return engine.cellAt(x / scale, y / scale, outCell);
+    }
+
+    public void onClick(float x, float y) {
+        if (!cellAt(x, y, clickedCell)) {
+            return;
+        }
+        int row = clickedCell[0];
+        int column = clickedCell[1];
+        if (column == 0 || row == 0) {
+            return;
+        }
+        selection.toggleCell(row, column);
+    }
+
+    public interface ExportCallback {
+
+        //在UI线程中调用，rowCount为写入的行数
+        void onExportFinished(int rowCount);
+
+        void onExportFailed(IOException e);
+
     }
 }
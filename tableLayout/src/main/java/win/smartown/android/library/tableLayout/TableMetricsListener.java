@@ -0,0 +1,30 @@
+package win.smartown.android.library.tableLayout;
+
+/**
+ * TableLayout的性能统计，通过TableLayout.setMetricsListener()设置，都在UI线程中调用
+ * 未设置时不计时、不创建对象，只有几个int计数
+ */
+public interface TableMetricsListener {
+
+    //setAdapter()、notifyDataSetChanged()、submitData()等重新绑定数据
+    int PHASE_BIND = 0;
+    int PHASE_MEASURE = 1;
+    int PHASE_LAYOUT = 2;
+    int PHASE_DRAW = 3;
+    //FreeScrollView滚动后绘制一帧
+    int PHASE_SCROLL_FRAME = 4;
+
+    void onTiming(TableLayout tableLayout, int phase, long durationNanos);
+
+    /**
+     * 每次onDraw()之后调用，均为上次调用之后的增量
+     *
+     * @param textMeasurements UI线程中测量文字宽度的次数，其中textCacheMisses次未命中TextWidthCache
+     * @param tileHits         TileCache命中的块数，未设置TileCache时为0
+     */
+    void onDrawCounts(TableLayout tableLayout, int cellsDrawn, int textMeasurements, int textCacheMisses, int tileHits, int tileMisses);
+
+    //创建TableColumn等调试信息
+    void onEvent(TableLayout tableLayout, String tag, String message);
+
+}
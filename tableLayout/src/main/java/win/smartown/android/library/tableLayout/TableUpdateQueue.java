@@ -0,0 +1,217 @@
+package win.smartown.android.library.tableLayout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 单元格更新队列，任意线程无锁提交，UI线程每帧取出一次
+ * 提交时即按单元格去重，同一单元格在一帧内的多次更新只保留最新的值，容量限制的是不同单元格的数量
+ * 提交只用CAS写入当前批次的开放寻址表，不加锁、不为每次更新创建对象；取出时原子地换上另一个批次
+ */
+public class TableUpdateQueue {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    //提交写入pending，只有取出的线程会替换它
+    private final AtomicReference<Batch> pending = new AtomicReference<>();
+    //取出后清空的批次，下次取出时换上
+    private Batch spare;
+    private final AtomicLong postedCount = new AtomicLong();
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile int capacity = DEFAULT_CAPACITY;
+
+    public TableUpdateQueue() {
+        pending.set(new Batch(capacity));
+    }
+
+    //已有该单元格的更新时替换为新的值，总是成功；不同单元格的数量已达到容量或行列为负数时丢弃并返回false
+    public boolean offer(int row, int column, CharSequence value) {
+        if (row < 0 || column < 0) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        long key = ((long) row << 32) | column;
+        int result;
+        while (true) {
+            Batch batch = pending.get();
+            batch.writers.incrementAndGet();
+            try {
+                //登记之后批次没有被换下，取出的线程会等待写入完成
+                if (pending.get() != batch) {
+                    continue;
+                }
+                result = batch.put(key, value);
+                break;
+            } finally {
+                batch.writers.decrementAndGet();
+            }
+        }
+        if (result == Batch.FULL) {
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        if (result == Batch.REPLACED) {
+            coalescedCount.incrementAndGet();
+        }
+        postedCount.incrementAndGet();
+        return true;
+    }
+
+    //按第一次提交的顺序将待处理的更新交给applier，返回实际应用的数量，只能在一个线程中调用
+    int drain(Applier applier) {
+        Batch batch = pending.get();
+        if (batch.size.get() == 0) {
+            return 0;
+        }
+        Batch next = spare;
+        if (next == null || next.capacity != capacity) {
+            next = new Batch(capacity);
+        }
+        spare = null;
+        pending.set(next);
+        //换下之前已经开始的提交很快就会完成
+        while (batch.writers.get() != 0) {
+            Thread.yield();
+        }
+        int applied = 0;
+        int count = batch.orderCount.get();
+        for (int i = 0; i < count; i++) {
+            int slot = batch.order[i];
+            long key = batch.keys.get(slot);
+            if (applier.apply((int) (key >>> 32), (int) key, batch.values.get(slot))) {
+                applied++;
+            } else {
+                droppedCount.incrementAndGet();
+            }
+        }
+        batch.clear();
+        spare = batch;
+        appliedCount.addAndGet(applied);
+        return applied;
+    }
+
+    //下次取出之后生效
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //等待应用的不同单元格的数量
+    public int getPendingCount() {
+        return pending.get().size.get();
+    }
+
+    public long getPostedCount() {
+        return postedCount.get();
+    }
+
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    //同一帧内被后续更新覆盖的数量
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    //队列已满、单元格已不存在或值无法写入而被丢弃的数量
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    interface Applier {
+        boolean apply(int row, int column, CharSequence value);
+    }
+
+    //一帧内的更新：按(row, column)查找位置的开放寻址表，以及每个单元格第一次提交的顺序
+    private static class Batch {
+
+        static final int ADDED = 0;
+        static final int REPLACED = 1;
+        static final int FULL = 2;
+        //行列都不为负数，key不会等于EMPTY
+        private static final long EMPTY = -1;
+
+        final int capacity;
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<CharSequence> values;
+        //order[i]为第i个单元格在表中的位置
+        final int[] order;
+        //已占用的单元格数量，占用位置之前先计入，不超过capacity
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicInteger orderCount = new AtomicInteger();
+        //正在写入的提交数量
+        final AtomicInteger writers = new AtomicInteger();
+
+        Batch(int capacity) {
+            this.capacity = capacity;
+            //长度为2的幂并且大于capacity的1.5倍，探测的距离很短
+            int length = Integer.highestOneBit(Math.max(capacity + capacity / 2, 8)) << 1;
+            keys = new AtomicLongArray(length);
+            values = new AtomicReferenceArray<>(length);
+            order = new int[capacity];
+            for (int i = 0; i < length; i++) {
+                keys.set(i, EMPTY);
+            }
+        }
+
+        int put(long key, CharSequence value) {
+            int mask = keys.length() - 1;
+            int slot = hash(key) & mask;
+            boolean reserved = false;
+            while (true) {
+                long current = keys.get(slot);
+                if (current == key) {
+                    if (reserved) {
+                        size.decrementAndGet();
+                    }
+                    values.set(slot, value);
+                    return REPLACED;
+                }
+                if (current != EMPTY) {
+                    slot = (slot + 1) & mask;
+                    continue;
+                }
+                if (!reserved) {
+                    if (size.incrementAndGet() > capacity) {
+                        size.decrementAndGet();
+                        return FULL;
+                    }
+                    reserved = true;
+                }
+                //其他线程抢先占用了该位置时重新检查它的key
+                if (keys.compareAndSet(slot, EMPTY, key)) {
+                    values.set(slot, value);
+                    order[orderCount.getAndIncrement()] = slot;
+                    return ADDED;
+                }
+            }
+        }
+
+        //只在没有提交写入时调用
+        void clear() {
+            int count = orderCount.get();
+            for (int i = 0; i < count; i++) {
+                keys.set(order[i], EMPTY);
+                values.set(order[i], null);
+            }
+            orderCount.set(0);
+            size.set(0);
+        }
+
+        private static int hash(long key) {
+            int h = ((int) (key >>> 32) * 31 + (int) key) * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+    }
+
+}
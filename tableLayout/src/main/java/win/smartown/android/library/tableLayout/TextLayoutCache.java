@@ -0,0 +1,261 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 超出列宽的单元格折行、省略后的结果缓存，以文字内容、宽度、最大行数和字体样式为key
+ * 估算占用的内存超过maxBytes后淘汰最久未使用的记录，滚动回已绘制过的单元格时不需要重新折行
+ * 可以在多个线程中使用，命中缓存时不会创建对象
+ */
+public class TextLayoutCache {
+
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final String ELLIPSIS = "…";
+
+    private static TextLayoutCache defaultCache;
+
+    private final Key probe = new Key();
+    private final LinkedHashMap<Key, TextLayout> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long byteCount;
+    private long hitCount;
+    private long missCount;
+    private final StringBuilder lineText = new StringBuilder();
+    private int[] lineEnds = new int[8];
+
+    public TextLayoutCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    //所有TableLayout默认共用的缓存
+    public static synchronized TextLayoutCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new TextLayoutCache(DEFAULT_MAX_BYTES);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * 将text按width折行，最多maxLines行，放不下时最后一行以省略号结尾
+     *
+     * @param maxLines 为1时只省略不折行
+     */
+    public synchronized TextLayout getLayout(Paint paint, CharSequence text, int width, int maxLines) {
+        probe.set(text, paint, width, maxLines);
+        TextLayout layout = cache.get(probe);
+        probe.text = null;
+        if (layout != null) {
+            hitCount++;
+            return layout;
+        }
+        missCount++;
+        layout = breakLines(paint, text, width, Math.max(1, maxLines));
+        Key key = new Key();
+        key.set(text.toString(), paint, width, maxLines);
+        cache.put(key, layout);
+        byteCount += layout.byteCount;
+        trimToSize();
+        return layout;
+    }
+
+    //只查找缓存，未缓存时返回null，不折行
+    public synchronized TextLayout getCachedLayout(Paint paint, CharSequence text, int width, int maxLines) {
+        probe.set(text, paint, width, maxLines);
+        TextLayout layout = cache.get(probe);
+        probe.text = null;
+        if (layout != null) {
+            hitCount++;
+        }
+        return layout;
+    }
+
+    //优先在空白处折行，一个单词超过宽度时从中间断开
+    private TextLayout breakLines(Paint paint, CharSequence text, int width, int maxLines) {
+        lineText.setLength(0);
+        int lineCount = 0;
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            if (lineCount == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+            }
+            int count = paint.breakText(text, start, length, true, width, null);
+            if (start + count >= length) {
+                lineText.append(text, start, length);
+                lineEnds[lineCount++] = lineText.length();
+                break;
+            }
+            if (lineCount == maxLines - 1) {
+                appendEllipsized(paint, text, start, width);
+                lineEnds[lineCount++] = lineText.length();
+                break;
+            }
+            int end = start + Math.max(1, count);
+            if (end < length && Character.isLowSurrogate(text.charAt(end)) && end - start > 1) {
+                end--;
+            }
+            int next = end;
+            for (int i = Math.min(end, length - 1); i > start; i--) {
+                if (Character.isWhitespace(text.charAt(i))) {
+                    end = i;
+                    next = i + 1;
+                    break;
+                }
+            }
+            lineText.append(text, start, trimEnd(text, start, end));
+            lineEnds[lineCount++] = lineText.length();
+            start = next;
+            while (start < length && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        }
+        return new TextLayout(lineText.toString(), Arrays.copyOf(lineEnds, lineCount));
+    }
+
+    //从start开始的剩余文字省略为一行
+    private void appendEllipsized(Paint paint, CharSequence text, int start, int width) {
+        float available = width - paint.measureText(ELLIPSIS);
+        int count = available > 0 ? paint.breakText(text, start, text.length(), true, available, null) : 0;
+        int end = start + count;
+        //不在代理对中间截断
+        if (end > start && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        lineText.append(text, start, trimEnd(text, start, end));
+        lineText.append(ELLIPSIS);
+    }
+
+    private static int trimEnd(CharSequence text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private void trimToSize() {
+        Iterator<TextLayout> iterator = cache.values().iterator();
+        while (byteCount > maxBytes && iterator.hasNext()) {
+            byteCount -= iterator.next().byteCount;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        byteCount = 0;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    //估算占用的内存
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    //折行后的文字，第i行为getText()中[getLineStart(i), getLineEnd(i))
+    public static class TextLayout {
+
+        private final String text;
+        private final int[] lineEnds;
+        final long byteCount;
+
+        TextLayout(String text, int[] lineEnds) {
+            this.text = text;
+            this.lineEnds = lineEnds;
+            //按key与value中的String、数组估算，key中保存了原文字
+            byteCount = 160 + 4L * text.length() + 4L * lineEnds.length;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getLineCount() {
+            return lineEnds.length;
+        }
+
+        public int getLineStart(int line) {
+            return line == 0 ? 0 : lineEnds[line - 1];
+        }
+
+        public int getLineEnd(int line) {
+            return lineEnds[line];
+        }
+
+    }
+
+    private static class Key {
+
+        CharSequence text;
+        float textSize;
+        Typeface typeface;
+        boolean fakeBold;
+        int width;
+        int maxLines;
+        int hash;
+
+        void set(CharSequence text, Paint paint, int width, int maxLines) {
+            this.text = text;
+            this.textSize = paint.getTextSize();
+            this.typeface = paint.getTypeface();
+            this.fakeBold = paint.isFakeBoldText();
+            this.width = width;
+            this.maxLines = maxLines;
+            int h = Float.floatToIntBits(textSize) * 31 + (typeface == null ? 0 : typeface.hashCode());
+            h = (h * 31 + (fakeBold ? 1 : 0)) * 31 + width;
+            h = h * 31 + maxLines;
+            int length = text.length();
+            for (int i = 0; i < length; i++) {
+                h = h * 31 + text.charAt(i);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            int length = text.length();
+            if (hash != other.hash || length != other.text.length() || width != other.width || maxLines != other.maxLines
+                    || textSize != other.textSize || typeface != other.typeface || fakeBold != other.fakeBold) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(i) != other.text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 文字宽度缓存，以文字内容、字体大小、字体和是否加粗为key，超过容量后淘汰最久未使用的记录
+ * 可以在多个线程中使用，命中缓存时不会创建对象；未命中时在锁外测量，只有查找和放入缓存时加锁
+ */
+public class TextWidthCache {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static TextWidthCache defaultCache;
+
+    private final Key probe = new Key();
+    private final LinkedHashMap<Key, Float> cache;
+    private long hitCount;
+    private long missCount;
+
+    public TextWidthCache(final int maxSize) {
+        cache = new LinkedHashMap<Key, Float>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Float> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    //所有TableLayout默认共用的缓存
+    public static synchronized TextWidthCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new TextWidthCache(DEFAULT_MAX_SIZE);
+        }
+        return defaultCache;
+    }
+
+    public float measureText(Paint paint, CharSequence text) {
+        return measureText(paint, text, 0, text.length());
+    }
+
+    public float measureText(Paint paint, CharSequence text, int start, int end) {
+        float textSize = paint.getTextSize();
+        Typeface typeface = paint.getTypeface();
+        boolean fakeBold = paint.isFakeBoldText();
+        synchronized (this) {
+            probe.set(text, start, end, textSize, typeface, fakeBold);
+            Float width = cache.get(probe);
+            probe.text = null;
+            if (width != null) {
+                hitCount++;
+                return width;
+            }
+            missCount++;
+        }
+        //其他线程同时测量了相同的文字时，后放入的结果覆盖先放入的，两者相同
+        float measured = paint.measureText(text, start, end);
+        Key key = new Key();
+        key.set(text.subSequence(start, end).toString(), 0, end - start, textSize, typeface, fakeBold);
+        synchronized (this) {
+            cache.put(key, measured);
+        }
+        return measured;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private static class Key {
+
+        CharSequence text;
+        int start;
+        int length;
+        float textSize;
+        Typeface typeface;
+        boolean fakeBold;
+        int hash;
+
+        void set(CharSequence text, int start, int end, float textSize, Typeface typeface, boolean fakeBold) {
+            this.text = text;
+            this.start = start;
+            this.length = end - start;
+            this.textSize = textSize;
+            this.typeface = typeface;
+            this.fakeBold = fakeBold;
+            int h = Float.floatToIntBits(textSize) * 31 + (typeface == null ? 0 : typeface.hashCode());
+            h = h * 31 + (fakeBold ? 1 : 0);
+            for (int i = start; i < end; i++) {
+                h = h * 31 + text.charAt(i);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (hash != other.hash || length != other.length || textSize != other.textSize || typeface != other.typeface
+                    || fakeBold != other.fakeBold) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (text.charAt(start + i) != other.text.charAt(other.start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * virtual模式下将表格按固定大小的块绘制到Bitmap中缓存，滚动时大部分区域直接绘制缓存的Bitmap
+ * 按占用内存淘汰最久未使用的块，等待复用的Bitmap也计入占用的内存，只在UI线程使用
+ */
+public class TileCache {
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+    //被淘汰、丢弃的Bitmap最多保留几个用于绘制新的块(包括等待下次绘制结束的)
+    private static final int MAX_RECYCLED = 4;
+
+    private final int tileSize;
+    private long maxBytes;
+    private long byteCount;
+    //key为(块所在行 << 32) | 块所在列
+    private final TileMap tiles = new TileMap();
+    private final ArrayList<Bitmap> recycled = new ArrayList<>();
+    //淘汰以及invalidate()、clear()丢弃的块，上一帧的显示列表可能还在引用，下次绘制结束后才能复用
+    private final ArrayList<Bitmap> pending = new ArrayList<>();
+    private final Canvas tileCanvas = new Canvas();
+    private final Rect tileBounds = new Rect();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public TileCache() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_MAX_BYTES);
+    }
+
+    public TileCache(int tileSize, long maxBytes) {
+        this.tileSize = tileSize;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    //下次绘制时生效
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    //缓存的块以及等待复用的Bitmap占用的内存
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    public int size() {
+        return tiles.size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    //绘制bounds范围内的块，未缓存的块由renderer绘制后加入缓存
+    void draw(Canvas canvas, Rect bounds, Renderer renderer) {
+        //只淘汰之前绘制的块，本次绘制的块可能还被硬件加速的显示列表引用，不能被复用
+        //淘汰的块在上一帧中可能还在显示，与丢弃的块一样，本次绘制结束后才能复用
+        trimToSize();
+        int firstColumn = bounds.left / tileSize;
+        int lastColumn = (bounds.right - 1) / tileSize;
+        int firstRow = bounds.top / tileSize;
+        int lastRow = (bounds.bottom - 1) / tileSize;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                long key = ((long) row << 32) | column;
+                Bitmap tile = tiles.get(key);
+                if (tile == null) {
+                    missCount++;
+                    tile = renderTile(row, column, renderer);
+                    tiles.put(key, tile);
+                } else {
+                    hitCount++;
+                }
+                canvas.drawBitmap(tile, column * tileSize, row * tileSize, null);
+            }
+        }
+        //本次绘制已不再使用之前丢弃的块
+        recycled.addAll(pending);
+        pending.clear();
+    }
+
+    private Bitmap renderTile(int row, int column, Renderer renderer) {
+        Bitmap tile;
+        if (recycled.isEmpty()) {
+            tile = Bitmap.createBitmap(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+            byteCount += getByteCount(tile);
+        } else {
+            tile = recycled.remove(recycled.size() - 1);
+            tile.eraseColor(Color.TRANSPARENT);
+        }
+        int left = column * tileSize;
+        int top = row * tileSize;
+        tileBounds.set(left, top, left + tileSize, top + tileSize);
+        tileCanvas.setBitmap(tile);
+        int saveCount = tileCanvas.save();
+        tileCanvas.translate(-left, -top);
+        renderer.renderTile(tileCanvas, tileBounds);
+        tileCanvas.restoreToCount(saveCount);
+        return tile;
+    }
+
+    //丢弃与该区域相交的块，下次绘制时重新生成
+    public void invalidate(int left, int top, int right, int bottom) {
+        //删除时最后一个块移到被删除的位置，从后向前遍历不会遗漏
+        for (int i = tiles.size - 1; i >= 0; i--) {
+            long key = tiles.keys[i];
+            int tileLeft = (int) key * tileSize;
+            int tileTop = (int) (key >>> 32) * tileSize;
+            if (tileLeft < right && tileTop < bottom && tileLeft + tileSize > left && tileTop + tileSize > top) {
+                discard(tiles.removeAt(i), pending);
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < tiles.size; i++) {
+            discard(tiles.values[i], pending);
+        }
+        tiles.clear();
+    }
+
+    //释放全部Bitmap，包括等待复用的
+    public void release() {
+        clear();
+        for (Bitmap tile : recycled) {
+            byteCount -= getByteCount(tile);
+        }
+        for (Bitmap tile : pending) {
+            byteCount -= getByteCount(tile);
+        }
+        recycled.clear();
+        pending.clear();
+    }
+
+    //先将最久未使用的块淘汰为等待复用的Bitmap，没有块可以淘汰时再释放等待复用的Bitmap
+    private void trimToSize() {
+        while (byteCount > maxBytes) {
+            if (tiles.size > 0) {
+                discard(tiles.removeAt(tiles.tail), pending);
+                evictionCount++;
+            } else if (!recycled.isEmpty()) {
+                byteCount -= getByteCount(recycled.remove(recycled.size() - 1));
+            } else if (!pending.isEmpty()) {
+                byteCount -= getByteCount(pending.remove(pending.size() - 1));
+            } else {
+                break;
+            }
+        }
+    }
+
+    //保留到to中等待复用，已保留的数量达到上限时直接释放
+    private void discard(Bitmap tile, ArrayList<Bitmap> to) {
+        if (recycled.size() + pending.size() < MAX_RECYCLED) {
+            to.add(tile);
+        } else {
+            byteCount -= getByteCount(tile);
+        }
+    }
+
+    private static long getByteCount(Bitmap bitmap) {
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    interface Renderer {
+        void renderTile(Canvas canvas, Rect bounds);
+    }
+
+    //按long查找的块，开放寻址保存在table中，最近使用的顺序为双向链表，都用数组保存，查找时不创建对象
+    //keys、values的前size个元素为缓存的块
+    private static class TileMap {
+
+        long[] keys = new long[16];
+        Bitmap[] values = new Bitmap[16];
+        int size;
+        //prev、next为链表中的前后元素，head为最近使用的块，tail为最久未使用的块
+        private int[] prev = new int[16];
+        private int[] next = new int[16];
+        private int head = -1;
+        int tail = -1;
+        //元素下标 + 1，0为空，负载不超过一半
+        private int[] table = new int[32];
+
+        //未缓存返回null
+        Bitmap get(long key) {
+            int mask = table.length - 1;
+            for (int i = hash(key) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int index = table[i] - 1;
+                if (keys[index] == key) {
+                    if (index != head) {
+                        unlink(index);
+                        linkFirst(index);
+                    }
+                    return values[index];
+                }
+            }
+            return null;
+        }
+
+        //key还未缓存
+        void put(long key, Bitmap value) {
+            if (size == keys.length) {
+                grow();
+            }
+            int index = size++;
+            keys[index] = key;
+            values[index] = value;
+            addToTable(index);
+            linkFirst(index);
+        }
+
+        //删除第index个块，最后一个块移到index
+        Bitmap removeAt(int index) {
+            Bitmap value = values[index];
+            removeFromTable(index);
+            unlink(index);
+            int last = --size;
+            if (index != last) {
+                removeFromTable(last);
+                keys[index] = keys[last];
+                values[index] = values[last];
+                prev[index] = prev[last];
+                next[index] = next[last];
+                if (prev[index] >= 0) {
+                    next[prev[index]] = index;
+                } else {
+                    head = index;
+                }
+                if (next[index] >= 0) {
+                    prev[next[index]] = index;
+                } else {
+                    tail = index;
+                }
+                addToTable(index);
+            }
+            values[last] = null;
+            return value;
+        }
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            Arrays.fill(table, 0);
+            size = 0;
+            head = tail = -1;
+        }
+
+        private void grow() {
+            int length = keys.length * 2;
+            keys = Arrays.copyOf(keys, length);
+            values = Arrays.copyOf(values, length);
+            prev = Arrays.copyOf(prev, length);
+            next = Arrays.copyOf(next, length);
+            table = new int[length * 2];
+            for (int i = 0; i < size; i++) {
+                addToTable(i);
+            }
+        }
+
+        private void addToTable(int index) {
+            int mask = table.length - 1;
+            int i = hash(keys[index]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = index + 1;
+        }
+
+        //删除后将之后同一探测序列中的元素重新放入，保证查找不会提前结束
+        private void removeFromTable(int index) {
+            int mask = table.length - 1;
+            int i = hash(keys[index]) & mask;
+            while (table[i] != index + 1) {
+                i = (i + 1) & mask;
+            }
+            table[i] = 0;
+            for (i = (i + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int moved = table[i] - 1;
+                table[i] = 0;
+                addToTable(moved);
+            }
+        }
+
+        private void unlink(int index) {
+            if (prev[index] >= 0) {
+                next[prev[index]] = next[index];
+            } else {
+                head = next[index];
+            }
+            if (next[index] >= 0) {
+                prev[next[index]] = prev[index];
+            } else {
+                tail = prev[index];
+            }
+        }
+
+        private void linkFirst(int index) {
+            prev[index] = -1;
+            next[index] = head;
+            if (head >= 0) {
+                prev[head] = index;
+            } else {
+                tail = index;
+            }
+            head = index;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+    }
+
+}
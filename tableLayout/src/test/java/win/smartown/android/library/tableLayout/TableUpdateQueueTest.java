@@ -0,0 +1,115 @@
+package win.smartown.android.library.tableLayout;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TableUpdateQueueTest {
+
+    //记录应用的更新，row为负数以外的都接受
+    private static class RecordingApplier implements TableUpdateQueue.Applier {
+
+        final List<String> applied = new ArrayList<>();
+        final Map<Long, CharSequence> cells = new HashMap<>();
+
+        @Override
+        public boolean apply(int row, int column, CharSequence value) {
+            applied.add(row + "," + column + "=" + value);
+            cells.put(((long) row << 32) | column, value);
+            return true;
+        }
+    }
+
+    @Test
+    public void coalescesInFirstPostedOrder() {
+        TableUpdateQueue queue = new TableUpdateQueue();
+        assertTrue(queue.offer(2, 1, "a"));
+        assertTrue(queue.offer(0, 0, "b"));
+        assertTrue(queue.offer(2, 1, "c"));
+        assertEquals(2, queue.getPendingCount());
+        RecordingApplier applier = new RecordingApplier();
+        assertEquals(2, queue.drain(applier));
+        assertEquals("[2,1=c, 0,0=b]", applier.applied.toString());
+        assertEquals(1, queue.getCoalescedCount());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(0, queue.drain(applier));
+    }
+
+    @Test
+    public void capacityLimitsDistinctCells() {
+        TableUpdateQueue queue = new TableUpdateQueue();
+        queue.setCapacity(2);
+        RecordingApplier applier = new RecordingApplier();
+        //容量在下次取出之后生效
+        queue.offer(9, 9, "x");
+        queue.drain(applier);
+        assertTrue(queue.offer(1, 1, "a"));
+        assertTrue(queue.offer(1, 2, "b"));
+        assertFalse(queue.offer(1, 3, "c"));
+        assertTrue(queue.offer(1, 1, "d"));
+        assertFalse(queue.offer(-1, 0, "e"));
+        assertEquals(2, queue.getDroppedCount());
+        assertEquals(2, queue.drain(applier));
+        assertTrue(queue.offer(1, 3, "c"));
+    }
+
+    @Test
+    public void rejectedApplyCountsAsDropped() {
+        TableUpdateQueue queue = new TableUpdateQueue();
+        queue.offer(1, 1, "a");
+        queue.offer(2, 2, "b");
+        int applied = queue.drain(new TableUpdateQueue.Applier() {
+            @Override
+            public boolean apply(int row, int column, CharSequence value) {
+                return row == 1;
+            }
+        });
+        assertEquals(1, applied);
+        assertEquals(1, queue.getDroppedCount());
+        assertEquals(1, queue.getAppliedCount());
+    }
+
+    //多个线程提交的同时不断取出，每个单元格最终都是该单元格最后提交的值
+    @Test
+    public void concurrentProducersKeepLatestValues() throws InterruptedException {
+        final TableUpdateQueue queue = new TableUpdateQueue();
+        final int threads = 4;
+        final int updates = 20000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int column = t;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < updates; i++) {
+                        while (!queue.offer(i % 100, column, String.valueOf(i))) {
+                            Thread.yield();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        RecordingApplier applier = new RecordingApplier();
+        while (done.getCount() > 0) {
+            queue.drain(applier);
+        }
+        queue.drain(applier);
+        for (int column = 0; column < threads; column++) {
+            for (int row = 0; row < 100; row++) {
+                assertEquals(String.valueOf(updates - 100 + row), applier.cells.get(((long) row << 32) | column));
+            }
+        }
+        assertEquals(threads * updates, queue.getPostedCount());
+        assertEquals(queue.getPostedCount(), queue.getAppliedCount() + queue.getCoalescedCount());
+    }
+
+}
@@ -0,0 +1,112 @@
+package win.smartown.android.library.tableLayout;
+
+import android.graphics.Paint;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TextLayoutCacheTest {
+
+    //每个字符宽10像素
+    private static class FixedWidthPaint extends Paint {
+
+        boolean fakeBold;
+
+        @Override
+        public float measureText(String text) {
+            return text.length() * 10;
+        }
+
+        @Override
+        public int breakText(CharSequence text, int start, int end, boolean measureForwards, float maxWidth, float[] measuredWidth) {
+            return Math.min(end - start, (int) (maxWidth / 10));
+        }
+
+        @Override
+        public boolean isFakeBoldText() {
+            return fakeBold;
+        }
+    }
+
+    //各行以|分隔
+    private static String lines(TextLayoutCache.TextLayout layout) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < layout.getLineCount(); i++) {
+            if (i > 0) {
+                out.append('|');
+            }
+            out.append(layout.getText(), layout.getLineStart(i), layout.getLineEnd(i));
+        }
+        return out.toString();
+    }
+
+    @Test
+    public void shortTextIsOneLine() {
+        TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        assertEquals("abc", lines(cache.getLayout(new FixedWidthPaint(), "abc", 100, 1)));
+    }
+
+    @Test
+    public void wrapsAtWhitespace() {
+        TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        assertEquals("hello|world|foo", lines(cache.getLayout(new FixedWidthPaint(), "hello world foo", 80, 3)));
+    }
+
+    @Test
+    public void breaksLongWords() {
+        TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        assertEquals("abcd|efgh|ij", lines(cache.getLayout(new FixedWidthPaint(), "abcdefghij", 40, 5)));
+    }
+
+    @Test
+    public void lastLineIsEllipsized() {
+        TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        FixedWidthPaint paint = new FixedWidthPaint();
+        assertEquals("hello|world f" + TextLayoutCache.ELLIPSIS, lines(cache.getLayout(paint, "hello world foo", 80, 2)));
+        assertEquals("hello w" + TextLayoutCache.ELLIPSIS, lines(cache.getLayout(paint, "hello world foo", 80, 1)));
+    }
+
+    @Test
+    public void keyIncludesWidthLinesAndStyle() {
+        TextLayoutCache cache = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        FixedWidthPaint paint = new FixedWidthPaint();
+        TextLayoutCache.TextLayout layout = cache.getLayout(paint, "hello world", 60, 2);
+        assertSame(layout, cache.getLayout(paint, new StringBuilder("hello world"), 60, 2));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertNull(cache.getCachedLayout(paint, "hello world", 70, 2));
+        assertNull(cache.getCachedLayout(paint, "hello world", 60, 3));
+        paint.fakeBold = true;
+        assertNull(cache.getCachedLayout(paint, "hello world", 60, 2));
+        paint.fakeBold = false;
+        assertNotNull(cache.getCachedLayout(paint, "hello world", 60, 2));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        FixedWidthPaint paint = new FixedWidthPaint();
+        TextLayoutCache probe = new TextLayoutCache(TextLayoutCache.DEFAULT_MAX_BYTES);
+        probe.getLayout(paint, "text0", 100, 1);
+        long layoutBytes = probe.getByteCount();
+        //最多保存3个
+        TextLayoutCache cache = new TextLayoutCache(layoutBytes * 3);
+        cache.getLayout(paint, "text0", 100, 1);
+        cache.getLayout(paint, "text1", 100, 1);
+        cache.getLayout(paint, "text2", 100, 1);
+        cache.getLayout(paint, "text0", 100, 1);
+        cache.getLayout(paint, "text3", 100, 1);
+        assertEquals(3, cache.size());
+        assertTrue(cache.getByteCount() <= cache.getMaxBytes());
+        assertNull(cache.getCachedLayout(paint, "text1", 100, 1));
+        assertNotNull(cache.getCachedLayout(paint, "text0", 100, 1));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+    }
+
+}